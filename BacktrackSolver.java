@@ -0,0 +1,460 @@
+/**
+ * Solves a Sudoku board by picking the cell with the fewest valid values and
+ * backtracking when it gets stuck. Before the search and after every guess,
+ * naked and hidden singles are filled in by propagation. Every cell set is
+ * recorded on a Trail, with a frame per guess, so a backtrack can undo the
+ * guess and everything deduced from it. The trail and index are allocated
+ * once per solver, so the search itself allocates nothing. It has no display
+ * of its own; a SolverListener can be attached to follow the search. Any
+ * board size works; the unit tables come from the board's Geometry, and the
+ * trail and index are reallocated only when the size changes.
+ *
+ * The cell to guess and the order its values are tried in come from a
+ * CellSelector and a ValueOrder, by default the cell with the fewest valid
+ * values and the lowest value first. Each guess keeps a mask of the values
+ * it has tried, so any order can be resumed after a backtrack.
+ */
+public class BacktrackSolver implements SudokuSolver {
+    // Fields for the optional observer, the reusable cell index, and the undo trail
+    private SolverListener listener;
+    private CandidateIndex index;
+    private boolean propagation;
+    private Trail trail;
+    private int[] tried; // the values tried by the guess at each depth
+    private CellSelector selector;
+    private ValueOrder order;
+    private Board scratch; // copy searched by countSolutions
+    private SolveBudget budget; // limits on the current solve, or null
+    private SolveResult.Status stopped; // why the budget ended the search, or null
+    private int checks; // search steps since the budget's clock and token were last checked
+    // Fields for the shape of the board being searched
+    private int[][] units; // the cells of every row, column, and box
+    private int width; // cells per row
+    // Fields for the counters of the current search
+    private long nodes;
+    private long backtracks;
+    private long propagations;
+    private int maxDepth;
+
+    /**
+     * Constructor for BacktrackSolver
+     * Initializes the solver without a listener and with propagation on.
+     */
+    public BacktrackSolver() {
+        this(CellSelector.Standard.MRV, ValueOrder.Standard.ASCENDING);
+    }
+
+    /**
+     * Constructor for BacktrackSolver
+     * Initializes the solver without a listener, with propagation on, and
+     * with the given search order.
+     * @param selector chooses the cell to guess
+     * @param order chooses the value to try in it
+     */
+    public BacktrackSolver(CellSelector selector, ValueOrder order) {
+        this.listener = null;
+        this.index = new CandidateIndex();
+        this.propagation = true;
+        this.trail = new Trail(Board.SIZE * Board.SIZE);
+        this.tried = new int[Board.SIZE * Board.SIZE + 1];
+        this.selector = selector;
+        this.order = order;
+        this.scratch = new Board();
+        this.units = Geometry.of(3).units();
+        this.width = Board.SIZE;
+    }
+
+    /**
+     * Sets the listener notified of every cell the search changes.
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Turns the naked and hidden single propagation on or off.
+     * @param propagation whether to propagate between guesses
+     */
+    public void setPropagation(boolean propagation) {
+        this.propagation = propagation;
+    }
+
+    /**
+     * Sets how the next cell to guess is chosen, from the next solve on.
+     * @param selector chooses the cell to guess
+     */
+    public void setCellSelector(CellSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Sets the order values are tried in, from the next solve on.
+     * @param order chooses the value to try in a guessed cell
+     */
+    public void setValueOrder(ValueOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Solves a given unsolved Sudoku board. Uses a CandidateIndex to pick the
+     * cell to guess (by default the most constrained one) and backtracks as
+     * soon as some empty cell has no valid value, undoing the cells
+     * propagation filled in since the guess.
+     * @param board the board to be solved
+     * @return SOLVED if solved, UNSOLVABLE otherwise
+     */
+    public SolveResult solve(Board board) {
+        return this.solve(board, null);
+    }
+
+    /**
+     * Solves a given unsolved Sudoku board within a budget. The solve stops
+     * soon after its budget runs out, leaving the board with only its
+     * original values.
+     * @param board the board to be solved
+     * @param budget the limits on the solve, or null for none
+     * @return SOLVED, UNSOLVABLE, TIMED_OUT, or CANCELLED
+     */
+    public SolveResult solve(Board board, SolveBudget budget) {
+        long startTime = System.nanoTime();
+        long startCpu = SolveStats.threadCpuTime();
+        this.budget = budget;
+        boolean solved = this.search(board, 1) == 1;
+        this.budget = null;
+        long endCpu = SolveStats.threadCpuTime();
+        SolveStats stats = new SolveStats(this.nodes, this.backtracks, this.propagations, this.maxDepth,
+                System.nanoTime() - startTime, startCpu < 0 ? -1 : endCpu - startCpu);
+        SolveResult.Status status = solved ? SolveResult.Status.SOLVED : SolveResult.Status.UNSOLVABLE;
+        return new SolveResult(this.stopped != null ? this.stopped : status, board, stats);
+    }
+
+    /**
+     * Counts the solutions of a board, stopping as soon as limit of them
+     * have been found. The board is not changed; the search runs on a copy,
+     * and the listener is not told about it.
+     * @param board the board to be checked
+     * @param limit the most solutions to look for (2 to check uniqueness)
+     * @return the number of solutions found, at most limit
+     */
+    public int countSolutions(Board board, int limit) {
+        if (this.scratch.getGeometry() != board.getGeometry()) {
+            this.scratch = board.copy();
+        }
+        this.scratch.copyFrom(board);
+        SolverListener listener = this.listener;
+        this.listener = null;
+        try {
+            return this.searchCells(this.scratch, limit);
+        } finally {
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Returns if a board has exactly one solution. The board is not changed.
+     * @param board the board to be checked
+     * @return true if the board has one solution, otherwise false
+     */
+    public boolean hasUniqueSolution(Board board) {
+        return this.countSolutions(board, 2) == 1;
+    }
+
+    /**
+     * Searches the board for solutions until limit of them have been found
+     * or there are none left. The board is left holding the last solution
+     * found if the limit was reached, otherwise with only its original values.
+     * @param board the board to be searched
+     * @param limit the most solutions to look for
+     * @return the number of solutions found
+     */
+    private int search(Board board, int limit) {
+        if(this.listener == null) {
+            return this.searchCells(board, limit);
+        }
+        this.listener.onStart(board);
+        int found = this.searchCells(board, limit);
+        this.listener.onFinish(board);
+        return found;
+    }
+
+    /**
+     * Runs the search for search().
+     * @param board the board to be searched
+     * @param limit the most solutions to look for
+     * @return the number of solutions found
+     */
+    private int searchCells(Board board, int limit) {
+        int found = 0;
+        this.trail.clear();
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.propagations = 0;
+        this.maxDepth = 0;
+        this.stopped = null;
+        this.checks = 0;
+        this.units = board.getGeometry().units();
+        this.width = board.getCols();
+        if(this.width * this.width > this.trail.capacity()) {
+            this.trail = new Trail(this.width * this.width);
+            this.tried = new int[this.width * this.width + 1];
+        }
+        this.order.reset();
+        if(!hasValidValues(board)) {
+            return 0;
+        }
+        this.index.reset(board);
+        boolean consistent = this.propagate(board);
+
+        while(true) {
+            // every cell is filled
+            if(consistent && this.index.size() == 0) {
+                found++;
+                if(found >= limit) {
+                    return found;
+                }
+                // keep looking by treating the solution like a dead end
+                consistent = false;
+            }
+            // give up if the budget has run out
+            else if(this.budget != null && this.overBudget()) {
+                this.undoTo(board, 0);
+                return 0;
+            }
+            // guess a value of the cell the selector picks
+            else if(consistent && !this.index.hasDeadEnd()) {
+                int next = this.selector.select(board, this.index);
+                int row = next / this.width;
+                int col = next % this.width;
+                int value = this.order.pick(board, row, col, board.candidates(row, col));
+                this.trail.pushFrame();
+                this.trail.push(next, 0);
+                this.tried[this.trail.depth()] = 1 << value;
+                this.nodes++;
+                this.maxDepth = Math.max(this.maxDepth, this.trail.depth());
+                board.set(row, col, value, true);
+                if(this.listener != null) this.listener.onAssign(row, col, board.value(row, col));
+                this.index.assigned(board, row, col);
+                consistent = this.propagate(board);
+                continue;
+            }
+            // start backtracking if some empty cell has no valid values
+            consistent = false;
+            while(!consistent && this.trail.depth() > 0) {
+                // undo what was deduced from the newest guess, keeping the guess itself
+                this.backtracks++;
+                int start = this.trail.topFrame();
+                this.undoTo(board, start + 1);
+                int guess = this.trail.cell(start);
+                int row = guess / this.width;
+                int col = guess % this.width;
+                // search for a valid value of the guessed cell that has not been tried
+                int untried = board.candidates(row, col) & ~this.tried[this.trail.depth()];
+                // update board with the new value
+                if(untried != 0) {
+                    int value = this.order.pick(board, row, col, untried);
+                    this.tried[this.trail.depth()] |= 1 << value;
+                    this.nodes++;
+                    board.set(row, col, value, true);
+                    if(this.listener != null) this.listener.onAssign(row, col, board.value(row, col));
+                    this.index.changed(board, row, col);
+                    consistent = this.propagate(board);
+                }
+                // no valid values for the guessed cell, so set it to 0 on board
+                else {
+                    this.undoTo(board, start);
+                    this.trail.popFrame();
+                }
+            }
+            // there are no more solutions for the board
+            if(!consistent) {
+                this.undoTo(board, 0);
+                return found;
+            }
+        }
+    }
+
+    /**
+     * Returns if the search has used up its budget, and records why. The
+     * node count is cheap to check every time; the clock and the token are
+     * only checked every 1024 calls, or every call when a listener (which
+     * may be pausing between steps) is attached.
+     * @return true if the search should stop, otherwise false
+     */
+    private boolean overBudget() {
+        if(this.nodes >= this.budget.getMaxNodes()) {
+            this.stopped = SolveResult.Status.TIMED_OUT;
+        } else if(this.listener == null && (++this.checks & 1023) != 0) {
+            return false;
+        } else if(this.budget.isCancelled()) {
+            this.stopped = SolveResult.Status.CANCELLED;
+        } else if(this.budget.isExpired()) {
+            this.stopped = SolveResult.Status.TIMED_OUT;
+        }
+        return this.stopped != null;
+    }
+
+    /**
+     * Fills in naked singles (cells with one valid value) and hidden singles
+     * (digits with one place left in a row, column, or box) until none are
+     * left.
+     * @param board the board to be filled in
+     * @return false if the board hit a dead end, otherwise true
+     */
+    private boolean propagate(Board board) {
+        if(!this.propagation) {
+            return true;
+        }
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            // naked singles sit in the index's one-value bucket
+            while(this.index.size() > 0 && !this.index.hasDeadEnd()
+                    && this.index.getCount(this.index.best()) == 1) {
+                int i = this.index.best();
+                int row = i / this.width;
+                int col = i % this.width;
+                this.force(board, row, col, Integer.numberOfTrailingZeros(board.candidates(row, col)));
+            }
+            if(this.index.hasDeadEnd()) {
+                return false;
+            }
+
+            // hidden singles: digits that only one empty cell of a unit allows
+            for (int u = 0; u < this.units.length; u++) {
+                int[] unit = this.units[u];
+                int placed = 0;
+                int once = 0;
+                int twice = 0;
+                for (int k = 0; k < unit.length; k++) {
+                    int value = board.value(unit[k] / this.width, unit[k] % this.width);
+                    if(value != 0) {
+                        placed |= 1 << value;
+                    } else {
+                        int allowed = board.candidates(unit[k] / this.width, unit[k] % this.width);
+                        twice |= once & allowed;
+                        once |= allowed;
+                    }
+                }
+                // some digit has nowhere to go in this unit
+                if((placed | once) != board.allDigits()) {
+                    return false;
+                }
+                int singles = once & ~twice & ~placed;
+                while(singles != 0) {
+                    int digit = Integer.numberOfTrailingZeros(singles);
+                    singles &= singles - 1;
+                    boolean found = false;
+                    for (int k = 0; k < unit.length && !found; k++) {
+                        int row = unit[k] / this.width;
+                        int col = unit[k] % this.width;
+                        if(board.value(row, col) == 0 && (board.candidates(row, col) & (1 << digit)) != 0) {
+                            this.force(board, row, col, digit);
+                            found = true;
+                        }
+                    }
+                    // an earlier single in this unit took the digit's only place
+                    if(!found) {
+                        return false;
+                    }
+                    changed = true;
+                }
+                if(this.index.hasDeadEnd()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets a cell whose value was deduced and records it so it can be undone.
+     * @param board the board the cell is on
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param value the deduced value
+     */
+    private void force(Board board, int row, int col, int value) {
+        this.trail.push(row * this.width + col, 0);
+        this.propagations++;
+        board.set(row, col, value, true);
+        if(this.listener != null) this.listener.onPropagate(row, col, value);
+        this.index.assigned(board, row, col);
+    }
+
+    /**
+     * Puts cells back to their previous values until only the given number
+     * of trail entries are left.
+     * @param board the board the cells are on
+     * @param mark the number of trail entries to keep
+     */
+    private void undoTo(Board board, int mark) {
+        while(this.trail.size() > mark) {
+            int cell = this.trail.topCell();
+            int previous = this.trail.topPrevious();
+            int row = cell / this.width;
+            int col = cell % this.width;
+            this.trail.pop();
+            board.set(row, col, previous, previous != 0);
+            if(this.listener != null) this.listener.onUndo(row, col, previous);
+            if(previous == 0) {
+                this.index.cleared(board, row, col);
+            } else {
+                this.index.changed(board, row, col);
+            }
+        }
+    }
+
+    /**
+     * Returns if every filled cell holds a value that no peer repeats.
+     * @param board the board to be checked
+     * @return true if the filled cells do not conflict, otherwise false
+     */
+    public static boolean hasValidValues(Board board) {
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
+                if(board.value(i, j) != 0 && !board.validValue(i, j, board.value(i, j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the empty cell with the fewest valid values, or null if no
+     * empty cell has a valid value.
+     * @param board the board to be searched
+     * @return the empty cell with the fewest valid values
+     */
+    public static Cell findNextCell(Board board) {
+        int fewestValidVal = board.getCols() + 1; // since we need to find the min valid val
+        int validValueCount;
+        Cell lowestValidValCell = null; // remains null if no cells with 0 have valid value
+
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
+                if(board.value(i, j) == 0) {
+                    validValueCount = board.candidateCount(i, j);
+                    // if there is a new lowest valid val count, update the cell to return
+                    if(validValueCount < fewestValidVal && validValueCount != 0) {
+                        fewestValidVal = validValueCount;
+                        lowestValidValCell = board.get(i, j);
+                    }
+                }
+            }
+        }
+        return lowestValidValCell;
+    }
+
+    public static void main(String[] args) {
+        Board board = new Board(args.length > 0 ? args[0] : "board1.txt");
+        System.out.println("Unsolved:");
+        System.out.println(board);
+
+        SolveResult result = new BacktrackSolver().solve(board);
+        System.out.println(result);
+        System.out.println(board);
+        System.out.println("Valid solution: " + board.validSolution());
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Solves a file of puzzles, one 81-character line per puzzle, on every core.
+ * Lines are handed to the workers in chunks and the solutions are written
+ * back in input order. Each worker thread keeps its own solver and board, so
+ * nothing is allocated per puzzle apart from the output line. Files can also
+ * be split into byte ranges that each worker reads with its own PuzzleReader.
+ */
+public class BatchSolver {
+    // Fields for the worker pool and chunking
+    private int threads;
+    private int chunkSize;
+    private ThreadLocal<Worker> workers;
+    private long solvedCount;
+    private SolverMetrics metrics;
+
+    /**
+     * A solver and board reused by one worker thread.
+     */
+    private static class Worker {
+        private SudokuSolver solver;
+        private Board board;
+        private Board puzzle; // the board before solving, for the metrics
+        private SolverMetrics metrics;
+
+        /**
+         * Initializes the worker's solver and board.
+         * @param solver the solver the worker uses
+         * @param metrics where each solve is recorded
+         */
+        public Worker(SudokuSolver solver, SolverMetrics metrics) {
+            this.solver = solver;
+            this.board = new Board();
+            this.puzzle = new Board();
+            this.metrics = metrics;
+        }
+
+        /**
+         * Solves the worker's board and records the solve.
+         * @return true if solved, otherwise false
+         */
+        private boolean solveBoard() {
+            this.puzzle.copyFrom(this.board);
+            SolveResult result = this.solver.solve(this.board);
+            this.metrics.record(result, this.puzzle);
+            return result.isSolved();
+        }
+
+        /**
+         * Solves every puzzle in a range of a file and returns the output lines.
+         * @param filename the file to be read
+         * @param start the first byte of the range
+         * @param end the byte after the range
+         * @return the output lines and the number of puzzles and solutions
+         * @throws IOException if the file cannot be read
+         */
+        public Chunk solveRange(String filename, long start, long end) throws IOException {
+            Chunk chunk = new Chunk();
+            try (PuzzleReader reader = new PuzzleReader(filename, start, end)) {
+                while (reader.next(this.board)) {
+                    chunk.count++;
+                    if (!reader.wasValid()) {
+                        chunk.lines.append("invalid");
+                    } else if (this.solveBoard()) {
+                        this.board.appendLine(chunk.lines);
+                        chunk.solved++;
+                    } else {
+                        chunk.lines.append("unsolvable");
+                    }
+                    chunk.lines.append('\n');
+                }
+            }
+            return chunk;
+        }
+
+        /**
+         * Solves one puzzle line.
+         * @param line the puzzle to be solved
+         * @return the solved line, "invalid" if the line is not a puzzle, or
+         *         null if there is no solution
+         */
+        public String solve(String line) {
+            if (!this.board.readLine(line)) {
+                return "invalid";
+            }
+            if (!this.solveBoard()) {
+                return null;
+            }
+            return this.board.toLine();
+        }
+    }
+
+    /**
+     * The output of one range of a file.
+     */
+    private static class Chunk {
+        private StringBuilder lines = new StringBuilder();
+        private long count;
+        private long solved;
+    }
+
+    /**
+     * Constructor for BatchSolver
+     * Initializes a batch solver using one BacktrackSolver per thread.
+     * @param threads the number of worker threads
+     */
+    public BatchSolver(int threads) {
+        this(threads, BacktrackSolver::new);
+    }
+
+    /**
+     * Constructor for BatchSolver
+     * @param threads the number of worker threads
+     * @param engine creates the solver each worker thread uses
+     */
+    public BatchSolver(int threads, Supplier<SudokuSolver> engine) {
+        this.threads = threads;
+        this.chunkSize = 256;
+        this.metrics = new SolverMetrics();
+        this.workers = ThreadLocal.withInitial(() -> new Worker(engine.get(), this.metrics));
+    }
+
+    /**
+     * Returns the stats of every solve since the batch solver was made.
+     * @return the solve metrics
+     */
+    public SolverMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns the number of puzzles solved by the last run.
+     * @return the number of puzzles solved
+     */
+    public long getSolvedCount() {
+        return this.solvedCount;
+    }
+
+    /**
+     * Solves every puzzle line from the reader and writes one line per puzzle
+     * to the writer, in the same order: the solution, "unsolvable", or
+     * "invalid" if the line is not a puzzle.
+     * 
+     * @param in  the puzzles to be solved
+     * @param out where the solutions are written
+     * @return the number of puzzles read
+     * @throws IOException if reading or writing fails
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        // chunks in input order; only a few per thread are kept in flight
+        ArrayDeque<Future<String[]>> pending = new ArrayDeque<Future<String[]>>();
+        long count = 0;
+        this.solvedCount = 0;
+        try {
+            String[] chunk = new String[this.chunkSize];
+            int n = 0;
+            String line = in.readLine();
+            while (line != null) {
+                if (!line.isEmpty()) {
+                    chunk[n++] = line;
+                    count++;
+                }
+                line = in.readLine();
+                if (n == this.chunkSize || (line == null && n > 0)) {
+                    pending.add(pool.submit(this.solveChunk(chunk, n)));
+                    chunk = new String[this.chunkSize];
+                    n = 0;
+                    if (pending.size() > 2 * this.threads) {
+                        this.write(pending.poll(), out);
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                this.write(pending.poll(), out);
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    /**
+     * Solves every puzzle in a file, reading it through memory-mapped
+     * PuzzleReaders over line-aligned ranges, and writes one line per puzzle
+     * in the same order: the solution, "unsolvable", or "invalid" if the
+     * line is not a puzzle.
+     * 
+     * @param filename the puzzles to be solved
+     * @param out      where the solutions are written
+     * @return the number of puzzles read
+     * @throws IOException if reading or writing fails
+     */
+    public long run(String filename, Writer out) throws IOException {
+        long size = new File(filename).length();
+        // about 1 MB (12,000 puzzles) per range, with enough ranges to keep every thread busy
+        int parts = (int) Math.max(4L * this.threads, size >> 20);
+        long[] bounds = PuzzleReader.split(filename, parts);
+
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        long count = 0;
+        this.solvedCount = 0;
+        try {
+            for (int i = 0; i < parts; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                pending.add(pool.submit(() -> this.workers.get().solveRange(filename, start, end)));
+                if (pending.size() > 2 * this.threads) {
+                    count += this.writeChunk(pending.poll(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                count += this.writeChunk(pending.poll(), out);
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    /**
+     * Waits for a range and writes its output lines.
+     * @param chunk the solving range
+     * @param out where the solutions are written
+     * @return the number of puzzles in the range
+     * @throws IOException if reading or writing fails
+     */
+    private long writeChunk(Future<Chunk> chunk, Writer out) throws IOException {
+        Chunk done = this.await(chunk);
+        out.append(done.lines);
+        this.solvedCount += done.solved;
+        return done.count;
+    }
+
+    /**
+     * Waits for a task, turning its failures into IOExceptions.
+     * @param task the task to wait for
+     * @return the result of the task
+     * @throws IOException if the task failed or the wait was interrupted
+     */
+    private <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("BatchSolver.run():: interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("BatchSolver.run():: a worker failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Returns a task that solves the first n lines of a chunk in place.
+     * @param chunk the puzzle lines
+     * @param n the number of lines in the chunk
+     * @return the task solving the chunk
+     */
+    private Callable<String[]> solveChunk(String[] chunk, int n) {
+        return () -> {
+            Worker worker = this.workers.get();
+            String[] solved = new String[n];
+            for (int i = 0; i < n; i++) {
+                solved[i] = worker.solve(chunk[i]);
+            }
+            return solved;
+        };
+    }
+
+    /**
+     * Waits for a chunk and writes its solutions.
+     * @param chunk the solving chunk
+     * @param out where the solutions are written
+     * @throws IOException if writing fails
+     */
+    private void write(Future<String[]> chunk, Writer out) throws IOException {
+        String[] solved = this.await(chunk);
+        for (int i = 0; i < solved.length; i++) {
+            if (solved[i] != null) {
+                out.write(solved[i]);
+                if (!solved[i].equals("invalid")) {
+                    this.solvedCount++;
+                }
+            } else {
+                out.write("unsolvable");
+            }
+            out.write('\n');
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java BatchSolver <puzzles> <solutions> [threads] [--dlx] [--cache <size>] [--lfu]"
+                    + " [--select mrv|degree|static] [--order asc|lcv|random:<seed>]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean dlx = false;
+        int cacheSize = 0;
+        SolutionCache.Eviction eviction = SolutionCache.Eviction.LRU;
+        String select = "mrv";
+        String order = "asc";
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--dlx")) {
+                dlx = true;
+            } else if (args[i].equals("--cache")) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--lfu")) {
+                eviction = SolutionCache.Eviction.LFU;
+            } else if (args[i].equals("--select")) {
+                select = args[++i];
+            } else if (args[i].equals("--order")) {
+                order = args[++i];
+            } else {
+                threads = Integer.parseInt(args[i]);
+            }
+        }
+
+        CellSelector selector = CellSelector.forName(select);
+        ValueOrder.forName(order); // fail before starting on a bad name
+        String orderName = order;
+        // each worker gets its own order, since a seeded one keeps state
+        Supplier<SudokuSolver> engine = dlx ? DancingLinksSolver::new
+                : () -> new BacktrackSolver(selector, ValueOrder.forName(orderName));
+        SolutionCache cache = cacheSize > 0 ? new SolutionCache(cacheSize, eviction) : null;
+        BatchSolver batch = cache == null ? new BatchSolver(threads, engine)
+                : new BatchSolver(threads, () -> new CachingSolver(cache, engine.get()));
+        batch.getMetrics().register("sudoku:type=SolverMetrics,name=BatchSolver");
+        long startTime = System.nanoTime();
+        long count;
+        try (Writer out = new BufferedWriter(new FileWriter(args[1]))) {
+            count = batch.run(args[0], out);
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.println("Solved " + batch.getSolvedCount() + " of " + count + " puzzles on "
+                + threads + " threads in " + String.format("%.2f", seconds) + " s");
+        System.out.println(String.format("%.0f", count / seconds) + " puzzles/sec");
+        if (cache != null) {
+            System.out.println(cache);
+        }
+        System.out.print(batch.getMetrics().dump());
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Micro-benchmarks for the solver hot paths, run over fixed corpora of easy,
+ * hard, and unsolvable puzzles so results can be compared between changes.
+ * Each benchmark is warmed up and then timed over several fixed-length
+ * iterations, reporting the mean, best, and worst time per operation.
+ * 
+ * Usage: java Benchmarks [name filter] [iteration milliseconds]
+ */
+public class Benchmarks {
+    // a few well-known puzzles that need little or no search
+    private static final String[] EASY = {
+        "003020600900305001001806400008102900700000008006708200002609500800203009005010300",
+        "200080300060070084030500209000105408000000000402706000301007040720040060004010003",
+        "000000907000420180000705026100904000050000040000507009920108000034059000507000000",
+        "030050040008010500460000012070502080000603000040109030250000098001020600080060020",
+    };
+    // puzzles that need deep search (Norvig's hard set, AI Escargot, Inkala 2012)
+    private static final String[] HARD = {
+        "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+        "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+        "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+        "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+    };
+    // puzzles whose given values do not conflict but have no solution
+    private static final String[] UNSOLVABLE = {
+        "503020600900305001001806400008102900700000008006708200002609500800203009005010300",
+        "46....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+        "49....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+        "47....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+    };
+
+    /**
+     * One timed operation. The result is kept so the work cannot be
+     * optimized away.
+     */
+    private interface Benchmark {
+        long run(int op) throws Exception;
+    }
+
+    // Fields for the run settings
+    private String filter;
+    private long iterationMillis;
+    private int iterations;
+    private static volatile long sink;
+
+    /**
+     * Constructor for Benchmarks
+     * @param filter only benchmarks whose name contains this are run
+     * @param iterationMillis the length of each timed iteration
+     */
+    public Benchmarks(String filter, long iterationMillis) {
+        this.filter = filter;
+        this.iterationMillis = iterationMillis;
+        this.iterations = 5;
+    }
+
+    /**
+     * Returns boards read from puzzle lines.
+     * @param lines the puzzles to be read
+     * @return a board for each puzzle
+     */
+    private static Board[] boards(String[] lines) {
+        Board[] boards = new Board[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            boards[i] = new Board();
+            boards[i].readLine(lines[i]);
+        }
+        return boards;
+    }
+
+    /**
+     * Warms up and times a benchmark, then prints its time per operation.
+     * @param name the name of the benchmark
+     * @param bench the operation to be timed
+     * @throws Exception if the operation fails
+     */
+    private void measure(String name, Benchmark bench) throws Exception {
+        if (!name.contains(this.filter)) {
+            return;
+        }
+        long result = 0;
+        int op = 0;
+        // warm up for as long as two iterations
+        long warmupEnd = System.nanoTime() + 2 * this.iterationMillis * 1000000;
+        while (System.nanoTime() < warmupEnd) {
+            result += bench.run(op++);
+        }
+
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        double worst = 0;
+        for (int i = 0; i < this.iterations; i++) {
+            long ops = 0;
+            long startTime = System.nanoTime();
+            long endTime = startTime + this.iterationMillis * 1000000;
+            long now;
+            do {
+                // check the clock every 16 ops so fast benchmarks are not just timing nanoTime
+                for (int k = 0; k < 16; k++) {
+                    result += bench.run(op++);
+                }
+                ops += 16;
+                now = System.nanoTime();
+            } while (now < endTime);
+            double nsPerOp = (double) (now - startTime) / ops;
+            total += nsPerOp;
+            best = Math.min(best, nsPerOp);
+            worst = Math.max(worst, nsPerOp);
+        }
+        sink = result;
+        System.out.println(String.format("%-32s %14.1f ns/op  (best %.1f, worst %.1f)",
+                name, total / this.iterations, best, worst));
+    }
+
+    /**
+     * Runs every benchmark that matches the filter.
+     * @throws Exception if a benchmark fails
+     */
+    public void runAll() throws Exception {
+        Board[] easy = boards(EASY);
+        Board[] hard = boards(HARD);
+        Board solved = new Board();
+        solved.readLine(EASY[0]);
+        new BacktrackSolver().solve(solved);
+
+        measure("Board.validValue", op -> {
+            Board b = hard[op & 3];
+            return b.validValue((op >> 2) % 9, (op >> 4) % 9, op % 9 + 1) ? 1 : 0;
+        });
+        measure("Board.validSolution", op -> solved.validSolution() ? 1 : 0);
+        Board scratch = new Board();
+        measure("Board.copyFrom", op -> {
+            scratch.copyFrom(hard[op & 3]);
+            return scratch.value(0, 0);
+        });
+        measure("Board(20) random", op -> new Board(20).numLocked());
+        PuzzleGenerator generator = new PuzzleGenerator(1);
+        Board generated = new Board();
+        measure("PuzzleGenerator 25 clues", op -> generator.generate(25, generated));
+
+        Sudoku[] easyGames = new Sudoku[easy.length];
+        for (int i = 0; i < easy.length; i++) {
+            easyGames[i] = new Sudoku(easy[i], false);
+        }
+        measure("Sudoku.findNextCell", op -> {
+            Cell c = easyGames[op & 3].findNextCell();
+            return c == null ? 0 : c.getRow();
+        });
+
+        CellStack stack = new CellStack();
+        Cell cell = new Cell(4, 4, 5);
+        measure("CellStack push/pop x81", op -> {
+            for (int i = 0; i < 81; i++) {
+                stack.push(cell);
+            }
+            long n = 0;
+            while (!stack.isEmpty()) {
+                n += stack.pop().getValue();
+            }
+            return n;
+        });
+
+        Trail trail = new Trail(81);
+        measure("Trail push/pop x81", op -> {
+            for (int i = 0; i < 81; i++) {
+                trail.push(i, op & 7);
+            }
+            long n = 0;
+            while (trail.size() > 0) {
+                n += trail.topCell();
+                trail.pop();
+            }
+            return n;
+        });
+
+        this.measureSolve("easy", EASY);
+        this.measureSolve("hard", HARD);
+        this.measureSolve("unsolvable", UNSOLVABLE);
+        this.measureHeuristics("hard", HARD);
+    }
+
+    /**
+     * Times a BacktrackSolver with every cell selector and value order on a
+     * corpus.
+     * @param corpus the name of the corpus
+     * @param lines the puzzles of the corpus
+     * @throws Exception if a solve fails
+     */
+    private void measureHeuristics(String corpus, String[] lines) throws Exception {
+        Board board = new Board();
+        ValueOrder[] orders = {ValueOrder.Standard.ASCENDING, ValueOrder.Standard.LEAST_CONSTRAINING,
+                new ValueOrder.Seeded(1)};
+        for (CellSelector selector : CellSelector.Standard.values()) {
+            for (ValueOrder order : orders) {
+                BacktrackSolver solver = new BacktrackSolver(selector, order);
+                measure("BacktrackSolver " + selector + "/" + order + " " + corpus, op -> {
+                    board.readLine(lines[op % lines.length]);
+                    return solver.solve(board).isSolved() ? 1 : 0;
+                });
+            }
+        }
+    }
+
+    /**
+     * Times Sudoku.solve(0) and each engine on a corpus. The board is read
+     * from its line again before every solve, which is included in the time.
+     * @param corpus the name of the corpus
+     * @param lines the puzzles of the corpus
+     * @throws Exception if a solve fails
+     */
+    private void measureSolve(String corpus, String[] lines) throws Exception {
+        Board board = new Board();
+        Sudoku game = new Sudoku(board, false);
+        measure("Sudoku.solve(0) " + corpus, op -> {
+            board.readLine(lines[op % lines.length]);
+            return game.solve(0) ? 1 : 0;
+        });
+
+        BacktrackSolver backtrack = new BacktrackSolver();
+        measure("BacktrackSolver " + corpus, op -> {
+            board.readLine(lines[op % lines.length]);
+            return backtrack.solve(board).isSolved() ? 1 : 0;
+        });
+
+        DancingLinksSolver dlx = new DancingLinksSolver();
+        measure("DancingLinksSolver " + corpus, op -> {
+            board.readLine(lines[op % lines.length]);
+            return dlx.solve(board).isSolved() ? 1 : 0;
+        });
+
+        ParallelSolver parallel = new ParallelSolver();
+        measure("ParallelSolver " + corpus, op -> {
+            board.readLine(lines[op % lines.length]);
+            return parallel.solve(board).isSolved() ? 1 : 0;
+        });
+
+        Board[] puzzles = boards(lines);
+        measure("BacktrackSolver count(2) " + corpus, op -> backtrack.countSolutions(puzzles[op % puzzles.length], 2));
+        measure("DancingLinksSolver count(2) " + corpus, op -> dlx.countSolutions(puzzles[op % puzzles.length], 2));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = args.length > 0 ? args[0] : "";
+        long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        new Benchmarks(filter, iterationMillis).runAll();
+    }
+}
@@ -1,40 +1,88 @@
 import java.io.*;
+import java.util.Arrays;
 import java.util.Random;
 import java.awt.Graphics;
 import java.awt.Color;
 
+/**
+ * A Sudoku board, 9x9 unless made with withBoxSize() (16x16 and 25x25 are
+ * also supported). The values are kept in one flat byte array (row * size +
+ * col) and the locked flags in a long array, so a 9x9 board is a few cache
+ * lines and copying one is a couple of array copies. Cell objects are only
+ * views onto this storage, made when something (like the display) asks for
+ * them.
+ */
 public class Board {
     // Fields for the Sudoku Board
-    private Cell[][] board;
+    private byte[] values;
+    private long[] locked; // bit i set when cell i is locked
+    private Cell[] cells; // views onto the board, made on first use
     private boolean finished;
+    private boolean finishedValid; // validSolution() when the board was marked finished
     private int lockedCells;
+    private Geometry geometry;
+    private int size;
+    private int allDigits;
     public static final int SIZE = 9;
+    // bit v is set when digit v (1-9) is in use
+    public static final int ALL_DIGITS = 0x3FE;
+    private static final char[] SOLVED_TEXT = "Hurray!".toCharArray();
+    private static final char[] FAILED_TEXT = "No solution!".toCharArray();
+
+    /**
+     * The banner colours, in a class of their own so that java.awt is only
+     * loaded once a board is drawn, not whenever a Board is used.
+     */
+    private static class BannerColors {
+        private static final Color SOLVED = new Color(0, 127, 0);
+        private static final Color FAILED = new Color(127, 0, 0);
+    }
+
+    // Fields for the used-digit bitmasks of each row, column, and 3x3 box
+    private int[] rowMask;
+    private int[] colMask;
+    private int[] boxMask;
+    // how many cells of each unit hold each digit (unit * (size + 1) + digit), so duplicates clear correctly
+    private int[] rowCount;
+    private int[] colCount;
+    private int[] boxCount;
 
     /**
      * Constructor for the Board
      * Initializes each cell to a value of 0
      */
     public Board() {
-        this.board = new Cell[SIZE][SIZE];
-        for (int i = 0; i < this.board.length; i++) {
-            for (int j = 0; j < this.board[0].length; j++) {
-                this.board[i][j] = new Cell(i, j, 0);
-            }
-        }
+        this.initMasks(Geometry.of(3));
         this.finished = false;
     }
 
+    /**
+     * Constructor for the Board
+     * Initializes an empty board of any geometry.
+     * @param geometry the shape of the board
+     * @param empty unused; tells this constructor apart from Board(int)
+     */
+    private Board(Geometry geometry, boolean empty) {
+        this.initMasks(geometry);
+        this.finished = false;
+    }
+
+    /**
+     * Returns an empty board with boxSize x boxSize boxes, e.g. 4 for a
+     * 16x16 board or 5 for a 25x25 board.
+     * @param boxSize the width (and height) of each box, from 2 to 5
+     * @return the empty board
+     */
+    public static Board withBoxSize(int boxSize) {
+        return new Board(Geometry.of(boxSize), true);
+    }
+
     /**
      * Constructor for the Board
      * Initializes each cell based on the read Sudoku file
      */
     public Board(String filename) {
-        this.board = new Cell[SIZE][SIZE];
-        for (int i = 0; i < this.board.length; i++) {
-            for (int j = 0; j < this.board[0].length; j++) {
-                this.board[i][j] = new Cell(i, j, 0);
-            }
-        }
+        this.initMasks(Geometry.of(3));
         this.read(filename);
         this.finished = false;
     }
@@ -46,34 +94,127 @@ public class Board {
      * @param lockedCells the number of cells to be locked initially
      */
     public Board(int lockedCells) {
-        this.board = new Cell[SIZE][SIZE];
-        this.lockedCells = lockedCells;
-        Random rand = new Random();
+        this(lockedCells, new Random());
+    }
 
-        for (int i = 0; i < this.board.length; i++) {
-            for (int j = 0; j < this.board[0].length; j++) {      
-                this.board[i][j] = new Cell(i, j, 0);
-            }
-        }
+    /**
+     * Constructor for the Board
+     * Initializes each cell to a random valid value based on
+     * the number of cells to be initially locked, so the same
+     * seeded random source always gives the same board.
+     * @param lockedCells the number of cells to be locked initially
+     * @param rand the random source for the cells and values
+     */
+    public Board(int lockedCells, Random rand) {
+        this.initMasks(Geometry.of(3));
+        this.lockedCells = lockedCells;
 
         for (int i = 0; i < lockedCells; i++) {
             int randomRow = rand.nextInt(SIZE);
             int randomCol = rand.nextInt(SIZE);
-            while(this.board[randomRow][randomCol].getValue() != 0) {
+            // skip filled cells and cells with no valid value left, which would never get one
+            int tries = 0;
+            while(this.value(randomRow, randomCol) != 0 || this.candidates(randomRow, randomCol) == 0) {
                 randomRow = rand.nextInt(SIZE);
                 randomCol = rand.nextInt(SIZE);
+                if(++tries > 10 * SIZE * SIZE) {
+                    this.finished = false;
+                    return; // every empty cell is stuck, so lock fewer cells
+                }
             }
             
             int randVal = 0;
             while(this.validValue(randomRow, randomCol, randVal) == false) {
                 randVal = rand.nextInt(9) + 1;
             }
-            this.board[randomRow][randomCol].setValue(randVal);
-            this.board[randomRow][randomCol].setLocked(true);
+            this.set(randomRow, randomCol, randVal, true);
         }
         this.finished = false;
     }
 
+    /**
+     * Allocates the empty cell storage, used-digit masks, and counts.
+     * @param geometry the shape of the board
+     */
+    private void initMasks(Geometry geometry) {
+        this.geometry = geometry;
+        this.size = geometry.getSize();
+        this.allDigits = geometry.getAllDigits();
+        this.values = new byte[this.size * this.size];
+        this.locked = new long[(this.size * this.size + 63) / 64];
+        this.rowMask = new int[this.size];
+        this.colMask = new int[this.size];
+        this.boxMask = new int[this.size];
+        this.rowCount = new int[this.size * (this.size + 1)];
+        this.colCount = new int[this.size * (this.size + 1)];
+        this.boxCount = new int[this.size * (this.size + 1)];
+    }
+
+    /**
+     * Returns a copy of the board, including its locked cells and finished
+     * state.
+     * 
+     * @return a copy of the board
+     */
+    public Board copy() {
+        Board copy = new Board(this.geometry, true);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Makes this board the same as another one of the same size. Existing
+     * Cell views of this board show the new values.
+     * 
+     * @param other the board to be copied
+     */
+    public void copyFrom(Board other) {
+        if (other.geometry != this.geometry) {
+            throw new IllegalArgumentException("Board.copyFrom():: boards are different sizes");
+        }
+        System.arraycopy(other.values, 0, this.values, 0, this.values.length);
+        System.arraycopy(other.locked, 0, this.locked, 0, this.locked.length);
+        System.arraycopy(other.rowMask, 0, this.rowMask, 0, this.size);
+        System.arraycopy(other.colMask, 0, this.colMask, 0, this.size);
+        System.arraycopy(other.boxMask, 0, this.boxMask, 0, this.size);
+        System.arraycopy(other.rowCount, 0, this.rowCount, 0, this.rowCount.length);
+        System.arraycopy(other.colCount, 0, this.colCount, 0, this.colCount.length);
+        System.arraycopy(other.boxCount, 0, this.boxCount, 0, this.boxCount.length);
+        this.finished = other.finished;
+        this.finishedValid = other.finishedValid;
+        this.lockedCells = other.lockedCells;
+    }
+
+    /**
+     * Returns the index of the 3x3 box (0-8) containing the cell of a 9x9
+     * board.
+     * 
+     * @param r the row of the cell
+     * @param c the col of the cell
+     * @return the index of the box containing the cell
+     */
+    public static int box(int r, int c) {
+        return (r / 3) * 3 + c / 3;
+    }
+
+    /**
+     * Returns the shape of the board.
+     * 
+     * @return the board's geometry
+     */
+    public Geometry getGeometry() {
+        return this.geometry;
+    }
+
+    /**
+     * Returns the mask with a bit set for every digit the board uses.
+     * 
+     * @return the mask of every digit
+     */
+    public int allDigits() {
+        return this.allDigits;
+    }
+
     /**
      * Returns a string representation of the board.
      * 
@@ -81,28 +222,95 @@ public class Board {
      */
     public String toString() {
         String output = "";
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[0].length; j++) {
-                output += board[i][j].getValue() + " ";
-                if ((j + 1) % 3 == 0) {
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                int value = this.values[i * this.size + j];
+                output += (this.size > 9 && value < 10 ? " " : "") + value + " ";
+                if ((j + 1) % this.geometry.getBoxSize() == 0) {
                     output += "   ";
                 }
             }
             output += "\n";
-            if ((i + 1) % 3 == 0) {
+            if ((i + 1) % this.geometry.getBoxSize() == 0) {
                 output += "\n";
             }
         }
         return output;
     }
 
+    /**
+     * Returns the board as one line of 81 characters, row by row, with '.'
+     * for empty cells. Larger boards write 10 and up as A, B, C, ...
+     * 
+     * @return the board as a single line
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(this.size * this.size);
+        this.appendLine(line);
+        return line.toString();
+    }
+
+    /**
+     * Appends the board as one line of 81 characters, like toLine().
+     * 
+     * @param out the builder to be appended to
+     */
+    public void appendLine(StringBuilder out) {
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                out.append(Geometry.digitChar(this.values[i * this.size + j]));
+            }
+        }
+    }
+
+    /**
+     * Clears the board and reads it from one line of 81 characters, row by
+     * row. Digits 1-9 are locked values, and '.' or '0' are empty cells.
+     * Larger boards read size * size characters, with A, B, C, ... for 10
+     * and up.
+     * 
+     * @param line the line to be read
+     * @return if the line was a valid board
+     */
+    public boolean readLine(CharSequence line) {
+        this.clear();
+        if (line.length() < this.size * this.size) {
+            return false;
+        }
+        for (int i = 0; i < this.size * this.size; i++) {
+            int value = Geometry.digitValue(line.charAt(i));
+            if (value < 0 || value > this.size) {
+                return false;
+            }
+            if (value != 0) {
+                this.set(i / this.size, i % this.size, value, true);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets every cell back to an unlocked 0 so the board can be reused.
+     */
+    public void clear() {
+        Arrays.fill(this.values, (byte) 0);
+        Arrays.fill(this.locked, 0L);
+        Arrays.fill(this.rowMask, 0);
+        Arrays.fill(this.colMask, 0);
+        Arrays.fill(this.boxMask, 0);
+        Arrays.fill(this.rowCount, 0);
+        Arrays.fill(this.colCount, 0);
+        Arrays.fill(this.boxCount, 0);
+        this.finished = false;
+    }
+
     /**
      * Returns the number of board columns
      * 
      * @return the number of board columns
      */
     public int getCols() {
-        return SIZE;
+        return this.size;
     }
 
     /**
@@ -111,7 +319,7 @@ public class Board {
      * @return the number of board rows
      */
     public int getRows() {
-        return SIZE;
+        return this.size;
     }
 
     /**
@@ -131,11 +339,13 @@ public class Board {
     }
 
     /**
-     * Sets the finished state of the board.
+     * Sets the finished state of the board. A finished board is checked
+     * once here, so drawing its banner does not check it again.
      * @param isFinished the state to be set to
      */
     public void setFinished(boolean isFinished) {
         this.finished = isFinished;
+        this.finishedValid = isFinished && this.validSolution();
     } 
 
     /**
@@ -146,7 +356,13 @@ public class Board {
      * @return the cell at the specified location
      */
     public Cell get(int r, int c) {
-        return this.board[r][c];
+        if (this.cells == null) {
+            this.cells = new Cell[this.size * this.size];
+        }
+        if (this.cells[r * this.size + c] == null) {
+            this.cells[r * this.size + c] = new Cell(this, r, c);
+        }
+        return this.cells[r * this.size + c];
     }
 
     /**
@@ -157,7 +373,8 @@ public class Board {
      * @return the locked status of the specified cell
      */
     public boolean isLocked(int r, int c) {
-        return this.board[r][c].isLocked();
+        int i = r * this.size + c;
+        return (this.locked[i >> 6] & (1L << i)) != 0;
     }
 
     /**
@@ -168,12 +385,8 @@ public class Board {
     public int numLocked() {
         int lockCount = 0;
 
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[0].length; j++) {
-                if (board[i][j].isLocked()) {
-                    lockCount++;
-                }
-            }
+        for (int i = 0; i < this.locked.length; i++) {
+            lockCount += Long.bitCount(this.locked[i]);
         }
         return lockCount;
     }
@@ -186,7 +399,7 @@ public class Board {
      * @return the specified cell's value
      */
     public int value(int r, int c) {
-        return this.board[r][c].getValue();
+        return this.values[r * this.size + c];
     }
 
     /**
@@ -197,7 +410,8 @@ public class Board {
      * @param value The new value to be set to
      */
     public void set(int r, int c, int value) {
-        this.board[r][c].setValue(value);
+        this.updateMasks(r, c, this.values[r * this.size + c], value);
+        this.values[r * this.size + c] = (byte) value;
     }
 
     /**
@@ -209,12 +423,82 @@ public class Board {
      * @param locked the new locked status to be set to
      */
     public void set(int r, int c, int value, boolean locked) {
-        this.board[r][c].setValue(value);
-        this.board[r][c].setLocked(locked);
+        int i = r * this.size + c;
+        this.updateMasks(r, c, this.values[i], value);
+        this.values[i] = (byte) value;
+        if (locked) {
+            this.locked[i >> 6] |= 1L << i;
+        } else {
+            this.locked[i >> 6] &= ~(1L << i);
+        }
     }
 
     /**
-     * Checks if there is already a value in the row, cell, or 3x3 square.
+     * Moves a cell's contribution in the row, column, and box masks from
+     * its old value to its new value.
+     * 
+     * @param r        the row of the cell
+     * @param c        the col of the cell
+     * @param oldValue the value the cell held
+     * @param newValue the value the cell now holds
+     */
+    private void updateMasks(int r, int c, int oldValue, int newValue) {
+        if (oldValue == newValue) {
+            return;
+        }
+        int b = this.geometry.boxOf(r * this.size + c);
+        if (oldValue >= 1 && oldValue <= this.size) {
+            if (--this.rowCount[r * (this.size + 1) + oldValue] == 0) {
+                this.rowMask[r] &= ~(1 << oldValue);
+            }
+            if (--this.colCount[c * (this.size + 1) + oldValue] == 0) {
+                this.colMask[c] &= ~(1 << oldValue);
+            }
+            if (--this.boxCount[b * (this.size + 1) + oldValue] == 0) {
+                this.boxMask[b] &= ~(1 << oldValue);
+            }
+        }
+        if (newValue >= 1 && newValue <= this.size) {
+            this.rowCount[r * (this.size + 1) + newValue]++;
+            this.colCount[c * (this.size + 1) + newValue]++;
+            this.boxCount[b * (this.size + 1) + newValue]++;
+            this.rowMask[r] |= 1 << newValue;
+            this.colMask[c] |= 1 << newValue;
+            this.boxMask[b] |= 1 << newValue;
+        }
+    }
+
+    /**
+     * Returns the digits that no other cell in the row, column, or 3x3 box
+     * is using, as a mask where bit v is set if digit v is allowed.
+     * 
+     * @param row the row to be checked
+     * @param col the column to be checked
+     * @return the mask of allowed digits
+     */
+    public int candidates(int row, int col) {
+        int value = this.values[row * this.size + col];
+        int allowed = ~(this.rowMask[row] | this.colMask[col] | this.boxMask[this.geometry.boxOf(row * this.size + col)])
+                & this.allDigits;
+        if (value != 0 && this.validValue(row, col, value)) {
+            allowed |= 1 << value;
+        }
+        return allowed;
+    }
+
+    /**
+     * Returns the number of digits allowed in the specified cell.
+     * 
+     * @param row the row to be checked
+     * @param col the column to be checked
+     * @return the number of allowed digits
+     */
+    public int candidateCount(int row, int col) {
+        return Integer.bitCount(this.candidates(row, col));
+    }
+
+    /**
+     * Checks if there is already a value in the row, cell, or box.
      * 
      * @param row   the row to be checked
      * @param col   the column to be checked
@@ -222,49 +506,23 @@ public class Board {
      * @return true if there isn't a value already, otherwise false
      */
     public boolean validValue(int row, int col, int value) {
-        if (value < 1 || value > 9) {
+        if (value < 1 || value > this.size) {
             return false;
         }
-        // check row
-        for (int i = 0; i < SIZE; i++) {
-            if (board[i][col].getValue() == value && i != row) {
-                return false;
-            }
-        }
-        // check columns
-        for (int j = 0; j < SIZE; j++) {
-            if (board[row][j].getValue() == value && j != col) {
-                return false;
-            }
+        int b = this.geometry.boxOf(row * this.size + col);
+        // the cell's own value is counted in the masks, so look at the counts instead
+        if (this.values[row * this.size + col] == value) {
+            return this.rowCount[row * (this.size + 1) + value] == 1 && this.colCount[col * (this.size + 1) + value] == 1
+                    && this.boxCount[b * (this.size + 1) + value] == 1;
         }
-        // check 3x3 square
-        // get the index of the 3x3 square (between 0 and 2)
-        int squareRow = row / 3;
-        int squareCol = col / 3;
-
-        // get middle value of the 3x3 cell
-        squareRow = (squareRow*3) + 1;
-        squareCol = (squareCol*3) + 1;
-
-        // check if there is a cell that already contains value
-        for (int i = squareRow - 1; i < squareRow + 2; i++) {
-            for (int j = squareCol - 1; j < squareCol + 2; j++) {
-                if (i == row && j == col) {
-                    ; // skip the cell we want to check
-                } else {
-                    if (board[i][j].getValue() == value) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        int used = this.rowMask[row] | this.colMask[col] | this.boxMask[b];
+        return (used & (1 << value)) == 0;
     }
 
     public boolean validSolution() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (this.validValue(i, j, board[i][j].getValue()) == false) {
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                if (this.validValue(i, j, this.values[i * this.size + j]) == false) {
                     return false;
                 }
             }
@@ -324,8 +582,31 @@ public class Board {
         return false;
     }
 
-    public void draw(Graphics g, int scale) {
+    /**
+     * Draws the box borders of a board other than 9x9.
+     * @param g the graphics object to draw on
+     * @param scale the size of each cell
+     */
+    private void drawBoxLines(Graphics g, int scale) {
+        int boxSize = this.geometry.getBoxSize();
+        int end = 25 + this.size * scale;
+        for (int k = 0; k <= this.size; k += boxSize) {
+            g.drawLine(25 + k * scale, 20, 25 + k * scale, end);
+            g.drawLine(25, 20 + k * scale, end, 20 + k * scale);
+        }
+    }
+
+    /**
+     * Draws the grid lines, which only change with the size of the board.
+     * @param g the graphics object to draw on
+     * @param scale the size of each cell
+     */
+    public void drawGrid(Graphics g, int scale) {
         g.setColor(Color.BLACK);
+        if (this.size != SIZE) {
+            this.drawBoxLines(g, scale);
+            return;
+        }
         // vertical lines
         g.drawLine(25, 20, 25, 370);
         g.drawLine(145, 20, 145, 370);
@@ -337,22 +618,44 @@ public class Board {
         g.drawLine(25, 135, 385, 135);
         g.drawLine(25, 250, 385, 250);
         g.drawLine(25, 370, 385, 370);
+    }
 
-        for(int i = 0; i<SIZE; i++){
-            for(int j = 0; j<SIZE; j++){
-                board[i][j].draw(g, j*scale+40, i*scale+40, scale);
-            }
-        }
+    /**
+     * Draws the value of one cell.
+     * @param g the graphics object to draw on
+     * @param r the row of the cell
+     * @param c the col of the cell
+     * @param scale the size of each cell
+     */
+    public void drawCell(Graphics g, int r, int c, int scale) {
+        this.get(r, c).draw(g, c*scale+40, r*scale+40, scale);
+    }
+
+    /**
+     * Draws the banner saying if a finished board was solved.
+     * @param g the graphics object to draw on
+     * @param scale the size of each cell
+     */
+    public void drawBanner(Graphics g, int scale) {
         if(finished) {
-            if(validSolution()){
-                g.setColor(new Color(0, 127, 0));
-                g.drawChars("Hurray!".toCharArray(), 0, "Hurray!".length(), scale*4+20, scale*10+10);
+            if(this.finishedValid){
+                g.setColor(BannerColors.SOLVED);
+                g.drawChars(SOLVED_TEXT, 0, SOLVED_TEXT.length, scale*4+20, scale*(this.size+1)+10);
             } else {
-                g.setColor(new Color(127, 0, 0));
-                g.drawChars("No solution!".toCharArray(), 0, "No Solution!".length(), scale*4+20, scale*10+10);
+                g.setColor(BannerColors.FAILED);
+                g.drawChars(FAILED_TEXT, 0, FAILED_TEXT.length, scale*4+20, scale*(this.size+1)+10);
             }
         }
-        
+    }
+
+    public void draw(Graphics g, int scale) {
+        this.drawGrid(g, scale);
+        for(int i = 0; i<this.size; i++){
+            for(int j = 0; j<this.size; j++){
+                this.drawCell(g, i, j, scale);
+            }
+        }
+        this.drawBanner(g, scale);
     }
 
     public static void main(String[] args) {
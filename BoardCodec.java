@@ -0,0 +1,95 @@
+/**
+ * Packs a Board into a fixed 52-byte record: 41 bytes hold the 81 values at
+ * 4 bits each (two cells per byte, the first cell in the low bits), and 11
+ * bytes hold one locked bit per cell. The text form from toString() takes
+ * about 200 bytes and toLine() takes 82. Only 9x9 boards can be packed.
+ */
+public class BoardCodec {
+    private static final int CELLS = Board.SIZE * Board.SIZE;
+    private static final int VALUE_BYTES = (CELLS + 1) / 2;
+    private static final int LOCK_BYTES = (CELLS + 7) / 8;
+    public static final int RECORD_SIZE = VALUE_BYTES + LOCK_BYTES;
+
+    /**
+     * Writes a board's record into an array.
+     * @param board the board to be written
+     * @param dst the array to be written to
+     * @param off where the record starts in the array
+     * @throws IllegalArgumentException if the board is not 9x9
+     */
+    public static void encode(Board board, byte[] dst, int off) {
+        checkSize(board, "encode");
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            dst[off + i] = 0;
+        }
+        for (int i = 0; i < CELLS; i++) {
+            int r = i / Board.SIZE;
+            int c = i % Board.SIZE;
+            dst[off + i / 2] |= board.value(r, c) << ((i & 1) * 4);
+            if (board.isLocked(r, c)) {
+                dst[off + VALUE_BYTES + i / 8] |= 1 << (i & 7);
+            }
+        }
+    }
+
+    /**
+     * Returns a board's record in a new array.
+     * @param board the board to be written
+     * @return the board's record
+     * @throws IllegalArgumentException if the board is not 9x9
+     */
+    public static byte[] encode(Board board) {
+        byte[] record = new byte[RECORD_SIZE];
+        encode(board, record, 0);
+        return record;
+    }
+
+    /**
+     * Reads a record into a board, replacing all of its cells.
+     * @param src the array holding the record
+     * @param off where the record starts in the array
+     * @param board the board to be read into
+     * @return false if a value is out of range, otherwise true
+     * @throws IllegalArgumentException if the board is not 9x9
+     */
+    public static boolean decode(byte[] src, int off, Board board) {
+        checkSize(board, "decode");
+        board.clear();
+        for (int i = 0; i < CELLS; i++) {
+            int value = (src[off + i / 2] >> ((i & 1) * 4)) & 0xF;
+            if (value > Board.SIZE) {
+                board.clear();
+                return false;
+            }
+            boolean locked = (src[off + VALUE_BYTES + i / 8] & (1 << (i & 7))) != 0;
+            if (value != 0 || locked) {
+                board.set(i / Board.SIZE, i % Board.SIZE, value, locked);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a board is the 9x9 size the record holds.
+     * @param board the board to be checked
+     * @param method the name of the calling method, for the message
+     * @throws IllegalArgumentException if the board is not 9x9
+     */
+    private static void checkSize(Board board, String method) {
+        if (board.getGeometry().getBoxSize() != 3) {
+            throw new IllegalArgumentException("BoardCodec." + method + "():: only 9x9 boards fit a record, not "
+                    + board.getCols() + "x" + board.getCols());
+        }
+    }
+
+    public static void main(String[] args) {
+        Board board = new Board(20);
+        byte[] record = encode(board);
+        Board copy = new Board();
+        decode(record, 0, copy);
+        System.out.println(board);
+        System.out.println("Record size: " + record.length + " bytes");
+        System.out.println("Same board: " + board.toLine().equals(copy.toLine()));
+        System.out.println("Same locked cells: " + (board.numLocked() == copy.numLocked()));
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * A SudokuSolver that answers from a SolutionCache when it can and falls
+ * back to another solver when it cannot. Several CachingSolvers (one per
+ * thread, each with its own solver) can share one cache.
+ */
+public class CachingSolver implements SudokuSolver {
+    // Fields for the cache and the solver behind it
+    private SolutionCache cache;
+    private SudokuSolver solver;
+
+    /**
+     * Constructor for CachingSolver
+     * @param cache the cache to look puzzles up in
+     * @param solver the solver used on a miss
+     */
+    public CachingSolver(SolutionCache cache, SudokuSolver solver) {
+        this.cache = cache;
+        this.solver = solver;
+    }
+
+    /**
+     * Solves the board in place, from the cache if it can.
+     * @param board the board to be solved
+     * @return SOLVED if solved, UNSOLVABLE otherwise
+     */
+    public SolveResult solve(Board board) {
+        return this.cache.solve(board, this.solver);
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * A flag one thread sets to ask a running solve on another thread to stop.
+ * The search checks it every so often and ends with CANCELLED, leaving the
+ * board with only its original values. A token can be tied to a parent, and
+ * is then cancelled whenever the parent is.
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+    private CancellationToken parent;
+
+    /**
+     * Constructor for CancellationToken
+     * Initializes a token that is not cancelled.
+     */
+    public CancellationToken() {
+        this(null);
+    }
+
+    /**
+     * Constructor for CancellationToken
+     * Initializes a token that is cancelled when it or its parent is.
+     * @param parent the token this one follows, or null for none
+     */
+    public CancellationToken(CancellationToken parent) {
+        this.cancelled = false;
+        this.parent = parent;
+    }
+
+    /**
+     * Asks every solve using this token (or a child of it) to stop.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Returns if this token or its parent has been cancelled.
+     * @return true if cancelled, otherwise false
+     */
+    public boolean isCancelled() {
+        return this.cancelled || (this.parent != null && this.parent.isCancelled());
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the empty cells of a Board in buckets by how many valid values they
+ * have, so the most constrained cell (and any cell with no valid value at
+ * all) can be found without scanning the board. Only the peers of a cell
+ * (20 on a 9x9 board) can change when it is set, so only those are moved
+ * between buckets. The index sizes itself to each board's geometry.
+ */
+public class CandidateIndex {
+    private static final int NONE = -1;
+
+    // Fields for the board shape
+    private Geometry geometry;
+    private int width; // cells per row
+    // Fields for the buckets (doubly linked lists of cell indexes)
+    private int[] head;
+    private int[] next;
+    private int[] prev;
+    private int[] count; // bucket each cell is in, or NONE if it is filled
+    private int size;
+
+    /**
+     * Constructor for CandidateIndex
+     * Initializes an index with no cells in it.
+     */
+    public CandidateIndex() {
+        this.resize(Geometry.of(3));
+    }
+
+    /**
+     * Allocates the buckets for a board shape.
+     * @param geometry the shape of the boards to be indexed
+     */
+    private void resize(Geometry geometry) {
+        this.geometry = geometry;
+        this.width = geometry.getSize();
+        this.head = new int[this.width + 1];
+        this.next = new int[geometry.getCells()];
+        this.prev = new int[geometry.getCells()];
+        this.count = new int[geometry.getCells()];
+        this.clear();
+    }
+
+    /**
+     * Empties every bucket.
+     */
+    private void clear() {
+        Arrays.fill(this.head, NONE);
+        Arrays.fill(this.count, NONE);
+        this.size = 0;
+    }
+
+    /**
+     * Rebuilds the index from every empty cell on the board.
+     * @param board the board to be indexed
+     */
+    public void reset(Board board) {
+        if (board.getGeometry() != this.geometry) {
+            this.resize(board.getGeometry());
+        }
+        this.clear();
+        for (int i = 0; i < this.count.length; i++) {
+            int r = i / this.width;
+            int c = i % this.width;
+            if (board.value(r, c) == 0) {
+                this.insert(i, board.candidateCount(r, c));
+            }
+        }
+    }
+
+    /**
+     * Updates the index after an empty cell was given a value.
+     * @param board the board the cell is on
+     * @param r the row of the cell
+     * @param c the col of the cell
+     */
+    public void assigned(Board board, int r, int c) {
+        int i = r * this.width + c;
+        if (this.count[i] != NONE) {
+            this.remove(i);
+        }
+        this.refreshPeers(board, i);
+    }
+
+    /**
+     * Updates the index after a filled cell changed to another value.
+     * @param board the board the cell is on
+     * @param r the row of the cell
+     * @param c the col of the cell
+     */
+    public void changed(Board board, int r, int c) {
+        this.refreshPeers(board, r * this.width + c);
+    }
+
+    /**
+     * Updates the index after a filled cell was set back to 0.
+     * @param board the board the cell is on
+     * @param r the row of the cell
+     * @param c the col of the cell
+     */
+    public void cleared(Board board, int r, int c) {
+        int i = r * this.width + c;
+        if (this.count[i] == NONE) {
+            this.insert(i, board.candidateCount(r, c));
+        }
+        this.refreshPeers(board, i);
+    }
+
+    /**
+     * Returns the number of empty cells in the index.
+     * @return the number of empty cells
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of valid values of an empty cell.
+     * @param i the index (row * size + col) of the cell
+     * @return the number of valid values, or -1 if the cell is filled
+     */
+    public int getCount(int i) {
+        return this.count[i];
+    }
+
+    /**
+     * Returns if some empty cell has no valid value left.
+     * @return true if the board has hit a dead end
+     */
+    public boolean hasDeadEnd() {
+        return this.head[0] != NONE;
+    }
+
+    /**
+     * Returns the index (row * size + col) of the empty cell with the fewest
+     * valid values, or -1 if there are no empty cells. A cell with no valid
+     * value at all is returned first.
+     * @return the most constrained empty cell
+     */
+    public int best() {
+        for (int k = 0; k <= this.width; k++) {
+            if (this.head[k] != NONE) {
+                return this.head[k];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the next cell in the same bucket as an empty cell, so the
+     * cells tied with best() can be walked from it.
+     * @param i the index of an empty cell
+     * @return the next cell with the same number of valid values, or -1
+     */
+    public int nextInBucket(int i) {
+        return this.next[i];
+    }
+
+    /**
+     * Moves each empty peer of a cell to the bucket for its current count.
+     * @param board the board the cell is on
+     * @param i the index of the cell
+     */
+    private void refreshPeers(Board board, int i) {
+        int[] peers = this.geometry.peers(i);
+        for (int p = 0; p < peers.length; p++) {
+            int j = peers[p];
+            if (this.count[j] != NONE) {
+                int k = board.candidateCount(j / this.width, j % this.width);
+                if (k != this.count[j]) {
+                    this.remove(j);
+                    this.insert(j, k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a cell to the front of a bucket.
+     * @param i the index of the cell
+     * @param k the bucket (its number of valid values)
+     */
+    private void insert(int i, int k) {
+        this.count[i] = k;
+        this.prev[i] = NONE;
+        this.next[i] = this.head[k];
+        if (this.head[k] != NONE) {
+            this.prev[this.head[k]] = i;
+        }
+        this.head[k] = i;
+        this.size++;
+    }
+
+    /**
+     * Takes a cell out of its bucket.
+     * @param i the index of the cell
+     */
+    private void remove(int i) {
+        int k = this.count[i];
+        if (this.prev[i] != NONE) {
+            this.next[this.prev[i]] = this.next[i];
+        } else {
+            this.head[k] = this.next[i];
+        }
+        if (this.next[i] != NONE) {
+            this.prev[this.next[i]] = this.prev[i];
+        }
+        this.count[i] = NONE;
+        this.size--;
+    }
+}
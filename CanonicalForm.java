@@ -0,0 +1,342 @@
+import java.util.Arrays;
+
+/**
+ * A board rewritten through a symmetry transform (transpose, band and stack
+ * swaps, row swaps within bands, column swaps within stacks, and digit
+ * relabeling) into a standard form, so puzzles that are the same up to those
+ * symmetries always get the same key. Rows, columns, bands, and stacks are
+ * ordered by how many givens they hold and where, which does not change
+ * under the symmetries, and ties are broken by searching for the smallest
+ * key. Boards with the same key always have solutions that map onto each
+ * other, so a solution can be stored in canonical form and mapped back onto
+ * any board with that key.
+ */
+public class CanonicalForm {
+    // Fields for the transform
+    private int width; // cells per row
+    private int[] source; // the original cell at each canonical cell
+    private int[] toCanonical; // canonical digit of each original digit
+    private int[] fromCanonical; // original digit of each canonical digit
+    private String key;
+
+    /**
+     * Constructor for CanonicalForm
+     * @param width the cells per row
+     * @param source the original cell at each canonical cell
+     * @param toCanonical the canonical digit of each original digit
+     * @param key the canonical board as one line
+     */
+    private CanonicalForm(int width, int[] source, int[] toCanonical, String key) {
+        this.width = width;
+        this.source = source;
+        this.toCanonical = toCanonical;
+        this.fromCanonical = new int[toCanonical.length];
+        for (int d = 0; d < toCanonical.length; d++) {
+            this.fromCanonical[toCanonical[d]] = d;
+        }
+        this.key = key;
+    }
+
+    /**
+     * Returns the canonical form of a board: of every allowed ordering of
+     * the board and of its transpose, the one with the smallest key.
+     * @param board the board to be transformed
+     * @return the canonical form
+     */
+    public static CanonicalForm of(Board board) {
+        Search search = new Search(board);
+        search.run(false);
+        search.run(true);
+        return new CanonicalForm(search.n, search.bestSource, search.bestLabels, new String(search.best));
+    }
+
+    /**
+     * Returns the canonical board as one line, the same for every board this
+     * transform makes equal.
+     * @return the canonical key
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns a board's values (normally its solution) in canonical
+     * coordinates and digits.
+     * @param board a board the size of the original
+     * @return the canonical values, row by row
+     */
+    public byte[] toCanonical(Board board) {
+        byte[] values = new byte[this.source.length];
+        for (int k = 0; k < this.source.length; k++) {
+            int cell = this.source[k];
+            values[k] = (byte) this.toCanonical[board.value(cell / this.width, cell % this.width)];
+        }
+        return values;
+    }
+
+    /**
+     * Fills in the empty cells of a board from canonical values, the reverse
+     * of toCanonical(). Filled cells are left alone.
+     * @param values the canonical values, row by row
+     * @param board the board to be filled in
+     */
+    public void fromCanonical(byte[] values, Board board) {
+        for (int k = 0; k < this.source.length; k++) {
+            int row = this.source[k] / this.width;
+            int col = this.source[k] % this.width;
+            if (board.value(row, col) == 0) {
+                board.set(row, col, this.fromCanonical[values[k]], true);
+            }
+        }
+    }
+
+    /**
+     * A search for the smallest key over the orderings of one board. Rows and
+     * columns are weighed by how many givens they hold and where, which does
+     * not change under the symmetries. Bands (and stacks) must come in order
+     * of weight, heaviest first, and so must the lines within each; lines or
+     * bands of equal weight may come in any order, and every such order is
+     * tried. For each column order the rows are placed one at a time, with
+     * the digits relabeled in the order they first appear, and a row order is
+     * dropped as soon as its key so far is larger than the best key found.
+     */
+    private static class Search {
+        // Fields for the board being searched
+        private int n;
+        private int boxSize;
+        private Board board;
+        private boolean transpose;
+        private int[] grid; // the board's values, transposed if needed
+        private long[] rowWeight;
+        private long[] colWeight;
+        private long[] rowBandWeight;
+        private long[] colBandWeight;
+        // Fields for the ordering being built
+        private int[] rowOrder;
+        private int[] colOrder;
+        private boolean[] rowUsed;
+        private boolean[] colUsed;
+        private int[] labels; // canonical digit of each original digit, 0 if not seen yet
+        private int next; // the next canonical digit to hand out
+        private char[] key;
+        // Fields for the best ordering found
+        private char[] best;
+        private int[] bestSource;
+        private int[] bestLabels;
+
+        /**
+         * Constructor for Search
+         * @param board the board to be transformed
+         */
+        private Search(Board board) {
+            this.board = board;
+            this.n = board.getCols();
+            this.boxSize = board.getGeometry().getBoxSize();
+            this.grid = new int[this.n * this.n];
+            this.rowWeight = new long[this.n];
+            this.colWeight = new long[this.n];
+            this.rowBandWeight = new long[this.boxSize];
+            this.colBandWeight = new long[this.boxSize];
+            this.rowOrder = new int[this.n];
+            this.colOrder = new int[this.n];
+            this.rowUsed = new boolean[this.n];
+            this.colUsed = new boolean[this.n];
+            this.labels = new int[this.n + 1];
+            this.key = new char[this.n * this.n];
+        }
+
+        /**
+         * Tries every allowed ordering of the board, or of its transpose.
+         * @param transpose whether to read the board's columns as rows
+         */
+        private void run(boolean transpose) {
+            int n = this.n;
+            this.transpose = transpose;
+            int[] rowCount = new int[n];
+            int[] colCount = new int[n];
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int value = this.board.value(transpose ? c : r, transpose ? r : c);
+                    this.grid[r * n + c] = value;
+                    if (value != 0) {
+                        rowCount[r]++;
+                        colCount[c]++;
+                    }
+                }
+            }
+
+            // a line's weight is its number of givens, then where they meet the crossing lines
+            Arrays.fill(this.rowWeight, 0);
+            Arrays.fill(this.colWeight, 0);
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    if (this.grid[r * n + c] != 0) {
+                        this.rowWeight[r] += colCount[c] * colCount[c];
+                        this.colWeight[c] += rowCount[r] * rowCount[r];
+                    }
+                }
+            }
+            Arrays.fill(this.rowBandWeight, 0);
+            Arrays.fill(this.colBandWeight, 0);
+            for (int i = 0; i < n; i++) {
+                this.rowWeight[i] += (long) rowCount[i] << 32;
+                this.colWeight[i] += (long) colCount[i] << 32;
+                this.rowBandWeight[i / this.boxSize] += this.rowWeight[i];
+                this.colBandWeight[i / this.boxSize] += this.colWeight[i];
+            }
+            this.placeCol(0);
+        }
+
+        /**
+         * Tries every allowed column for a position, then the positions
+         * after it, and searches the rows once every column is placed.
+         * @param p the position to be filled
+         */
+        private void placeCol(int p) {
+            if (p == this.n) {
+                Arrays.fill(this.labels, 0);
+                this.next = 1;
+                this.placeRow(0, this.best == null);
+                return;
+            }
+            for (int col = 0; col < this.n; col++) {
+                if (this.allowed(col, p, this.colOrder, this.colUsed, this.colWeight, this.colBandWeight)) {
+                    this.colOrder[p] = col;
+                    this.colUsed[col] = true;
+                    this.placeCol(p + 1);
+                    this.colUsed[col] = false;
+                }
+            }
+        }
+
+        /**
+         * Tries every allowed row for a position whose key is not larger
+         * than the best key's, then the positions after it, and keeps the
+         * ordering once every row is placed if its key is smaller.
+         * @param p the position to be filled
+         * @param smaller whether the key is already smaller than the best
+         */
+        private void placeRow(int p, boolean smaller) {
+            int n = this.n;
+            if (p == n) {
+                if (smaller) {
+                    this.keep();
+                }
+                return;
+            }
+            for (int row = 0; row < n; row++) {
+                if (!this.allowed(row, p, this.rowOrder, this.rowUsed, this.rowWeight, this.rowBandWeight)) {
+                    continue;
+                }
+                int labelled = this.next;
+                for (int q = 0; q < n; q++) {
+                    int value = this.grid[row * n + this.colOrder[q]];
+                    if (value != 0 && this.labels[value] == 0) {
+                        this.labels[value] = this.next++;
+                    }
+                    this.key[p * n + q] = Geometry.digitChar(this.labels[value]);
+                }
+                int compare = smaller ? -1
+                        : Arrays.compare(this.key, p * n, (p + 1) * n, this.best, p * n, (p + 1) * n);
+                if (compare <= 0) {
+                    char[] before = this.best;
+                    this.rowOrder[p] = row;
+                    this.rowUsed[row] = true;
+                    this.placeRow(p + 1, compare < 0);
+                    this.rowUsed[row] = false;
+                    if (this.best != before) {
+                        smaller = false; // the new best key starts with this one's first p rows
+                    }
+                }
+                // forget the digits this row labelled
+                for (int d = 1; d <= n; d++) {
+                    if (this.labels[d] >= labelled) {
+                        this.labels[d] = 0;
+                    }
+                }
+                this.next = labelled;
+            }
+        }
+
+        /**
+         * Returns if a line may go at a position: its band must be the one
+         * being filled, or a new band of the largest weight left, and it
+         * must have the largest weight left in its band. Of empty lines (or
+         * empty bands) only the first one left is tried.
+         * @param line the row (or column) to be checked
+         * @param p the position to be filled
+         * @param order the lines at the positions before p
+         * @param used which lines are placed
+         * @param weight the weight of each line
+         * @param bandWeight the weight of each band
+         * @return true if the line may go at the position
+         */
+        private boolean allowed(int line, int p, int[] order, boolean[] used, long[] weight, long[] bandWeight) {
+            int box = this.boxSize;
+            int band = line / box;
+            if (used[line]) {
+                return false;
+            }
+            if (p % box != 0 && order[p - 1] / box != band) {
+                return false;
+            }
+            if (p % box == 0) {
+                if (this.started(band, used)) {
+                    return false;
+                }
+                for (int b = 0; b < box; b++) {
+                    if (bandWeight[b] > bandWeight[band] && !this.started(b, used)) {
+                        return false;
+                    }
+                    // empty bands can trade places without changing the board, so try only the first
+                    if (b < band && bandWeight[b] == 0 && bandWeight[band] == 0 && !this.started(b, used)) {
+                        return false;
+                    }
+                }
+            }
+            for (int j = band * box; j < (band + 1) * box; j++) {
+                if (!used[j] && (weight[j] > weight[line] || (j < line && weight[j] == 0 && weight[line] == 0))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns if any line of a band is placed.
+         * @param band the band to be checked
+         * @param used which lines are placed
+         * @return true if the band is started
+         */
+        private boolean started(int band, boolean[] used) {
+            for (int j = 0; j < this.boxSize; j++) {
+                if (used[band * this.boxSize + j]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Keeps the ordering just placed as the best one.
+         */
+        private void keep() {
+            int n = this.n;
+            this.best = this.key.clone();
+            this.bestSource = new int[n * n];
+            for (int k = 0; k < n * n; k++) {
+                int r = this.rowOrder[k / n];
+                int c = this.colOrder[k % n];
+                this.bestSource[k] = this.transpose ? c * n + r : r * n + c;
+            }
+            // digits the board does not use take the labels left over, in order
+            this.bestLabels = this.labels.clone();
+            int label = this.next;
+            for (int d = 1; d <= n; d++) {
+                if (this.bestLabels[d] == 0) {
+                    this.bestLabels[d] = label++;
+                }
+            }
+        }
+    }
+}
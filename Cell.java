@@ -1,12 +1,20 @@
 import java.awt.Graphics;
 import java.awt.Color;
 
+/**
+ * One square of a Sudoku board. A cell made with Board.get() is a view onto
+ * that board: reading it reads the board, and setting it sets the board. A
+ * cell made with one of the other constructors holds its own value.
+ */
 public class Cell {
+    private static final char[] DIGITS = buildDigits(); // the character drawn for each value
+
     // Fields for cell
     private int row;
     private int col;
     private int value;
     private boolean isLocked;
+    private Board board; // the board this cell is a view of, or null
 
     /**
      * Constructor for Cell
@@ -49,6 +57,19 @@ public class Cell {
         this.isLocked = lock;
     }
 
+    /**
+     * Constructor for Cell
+     * Initializes a view onto one cell of a board.
+     * @param board the board holding the cell's value
+     * @param row cell row
+     * @param col cell col
+     */
+    public Cell(Board board, int row, int col) {
+        this.board = board;
+        this.row = row;
+        this.col = col;
+    }
+
     /**
      * Returns the row the cell is located at.
      * @return the row the cell is located at
@@ -70,6 +91,9 @@ public class Cell {
      * @return the value of the cell
      */
     public int getValue() {
+        if (this.board != null) {
+            return this.board.value(this.row, this.col);
+        }
         return this.value;
     }
 
@@ -78,7 +102,11 @@ public class Cell {
      * @param newVal the new value to set to
      */
     public void setValue(int newVal) {
-        this.value = newVal;
+        if (this.board != null) {
+            this.board.set(this.row, this.col, newVal);
+        } else {
+            this.value = newVal;
+        }
     }
 
     /**
@@ -86,6 +114,9 @@ public class Cell {
      * @return the lock state of the cell
      */
     public boolean isLocked() {
+        if (this.board != null) {
+            return this.board.isLocked(this.row, this.col);
+        }
         return this.isLocked;
     }
 
@@ -94,7 +125,11 @@ public class Cell {
      * @param lock The lock state to be set to.
      */
     public void setLocked(boolean lock) {
-        this.isLocked = lock;
+        if (this.board != null) {
+            this.board.set(this.row, this.col, this.getValue(), lock);
+        } else {
+            this.isLocked = lock;
+        }
     }
 
     /**
@@ -113,8 +148,21 @@ public class Cell {
      * @param scale the size the grid cell should be
      */
     public void draw(Graphics g, int x, int y, int scale) {
-        char toDraw = (char) ((int) '0' + this.getValue()); // in case getValue is null
-        g.setColor(isLocked ? Color.BLUE : Color.RED);
-        g.drawChars(new char[] {toDraw}, 0, 1, x, y);
+        g.setColor(this.isLocked() ? Color.BLUE : Color.RED);
+        g.drawChars(DIGITS, this.getValue(), 1, x, y);
+    }
+
+    /**
+     * Builds the characters drawn for each value: '0' for empty, then 1-9
+     * and A, B, C, ... for 10 and up.
+     * @return the character for each value
+     */
+    private static char[] buildDigits() {
+        char[] digits = new char[Geometry.MAX_BOX_SIZE * Geometry.MAX_BOX_SIZE + 1];
+        digits[0] = '0';
+        for (int v = 1; v < digits.length; v++) {
+            digits[v] = Geometry.digitChar(v);
+        }
+        return digits;
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+/**
+ * Chooses the empty cell a BacktrackSolver guesses next. The solver keeps
+ * its empty cells in a CandidateIndex, bucketed by how many valid values
+ * each has, and only asks when no cell is a dead end. The standard
+ * selectors keep no state, so one can be shared by any number of solvers.
+ */
+public interface CellSelector {
+    /**
+     * The standard selectors.
+     */
+    enum Standard implements CellSelector {
+        /**
+         * The cell with the fewest valid values (minimum remaining values).
+         */
+        MRV {
+            public int select(Board board, CandidateIndex index) {
+                return index.best();
+            }
+        },
+        /**
+         * The cell with the fewest valid values, breaking ties by the most
+         * empty peers, i.e. the cell whose value constrains the most others.
+         */
+        MRV_DEGREE {
+            public int select(Board board, CandidateIndex index) {
+                int best = index.best();
+                int bestDegree = -1;
+                for (int i = best; i >= 0; i = index.nextInBucket(i)) {
+                    int[] around = board.getGeometry().peers(i);
+                    int degree = 0;
+                    for (int p = 0; p < around.length; p++) {
+                        if (index.getCount(around[p]) >= 0) {
+                            degree++;
+                        }
+                    }
+                    if (degree > bestDegree) {
+                        bestDegree = degree;
+                        best = i;
+                    }
+                }
+                return best;
+            }
+        },
+        /**
+         * The first empty cell in row order, whatever its number of values.
+         */
+        STATIC {
+            public int select(Board board, CandidateIndex index) {
+                int cells = board.getGeometry().getCells();
+                for (int i = 0; i < cells; i++) {
+                    if (index.getCount(i) >= 0) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the empty cell to guess next.
+     * @param board the board being searched
+     * @param index the empty cells of the board, none of them a dead end
+     * @return the index (row * size + col) of the cell
+     */
+    int select(Board board, CandidateIndex index);
+
+    /**
+     * Returns a standard selector by name: "mrv", "degree", or "static".
+     * @param name the name of the selector
+     * @return the selector
+     * @throws IllegalArgumentException if there is no selector by that name
+     */
+    static CellSelector forName(String name) {
+        switch (name.toLowerCase()) {
+            case "mrv":
+                return Standard.MRV;
+            case "degree":
+            case "mrv_degree":
+                return Standard.MRV_DEGREE;
+            case "static":
+                return Standard.STATIC;
+            default:
+                throw new IllegalArgumentException("CellSelector.forName():: no selector named " + name);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Shows a search on a LandscapeDisplay at a fixed frame rate without slowing
+ * the solver down. The solver thread applies each event to a mirror board of
+ * its own, and only copies the mirror into a shared snapshot when the display
+ * has asked for a new frame, so most events cost one board write. A Swing
+ * Timer on the event dispatch thread copies the snapshot into the board the
+ * display draws and repaints it. The display never reads a board the solver
+ * is changing, and steps between frames are coalesced.
+ */
+public class CoalescingDisplayListener implements SolverListener {
+    // Fields for the display and its timer
+    private LandscapeDisplay display;
+    private Timer timer;
+    // Fields for the boards: the mirror is only used by the solver thread,
+    // the view only by the event dispatch thread, and the snapshot under its lock
+    private Board mirror;
+    private Board snapshot;
+    private Board view;
+    private boolean fresh; // the snapshot has changes the view has not shown
+    private AtomicBoolean wanted; // the display is ready for another frame
+
+    /**
+     * Constructor for CoalescingDisplayListener
+     * @param display the display to draw the search on
+     * @param framesPerSecond how often to repaint
+     */
+    public CoalescingDisplayListener(LandscapeDisplay display, int framesPerSecond) {
+        this.display = display;
+        this.wanted = new AtomicBoolean(false);
+        this.timer = new Timer(Math.max(1, 1000 / framesPerSecond), event -> this.showFrame());
+    }
+
+    public void onStart(Board board) {
+        this.mirror = board.copy();
+        Board first = board.copy();
+        synchronized (this) {
+            this.snapshot = board.copy();
+            this.fresh = false;
+        }
+        SwingUtilities.invokeLater(() -> {
+            this.view = first;
+            this.display.setBoard(first);
+            this.display.repaint();
+            this.wanted.set(true);
+        });
+        this.timer.start();
+    }
+
+    public void onAssign(int row, int col, int value) {
+        this.mirror.set(row, col, value, true);
+        this.offerFrame();
+    }
+
+    public void onPropagate(int row, int col, int value) {
+        this.mirror.set(row, col, value, true);
+        this.offerFrame();
+    }
+
+    public void onUndo(int row, int col, int value) {
+        this.mirror.set(row, col, value, value != 0);
+        this.offerFrame();
+    }
+
+    /**
+     * Stops the frames and shows the board the search left, which the
+     * solver no longer changes.
+     * @param board the board as the search left it
+     */
+    public void onFinish(Board board) {
+        this.timer.stop();
+        SwingUtilities.invokeLater(() -> {
+            this.wanted.set(false);
+            this.display.setBoard(board);
+            this.display.repaint();
+        });
+    }
+
+    /**
+     * Copies the mirror into the snapshot if the display wants a frame.
+     */
+    private void offerFrame() {
+        if (this.wanted.get()) {
+            this.wanted.set(false);
+            synchronized (this) {
+                this.snapshot.copyFrom(this.mirror);
+                this.fresh = true;
+            }
+        }
+    }
+
+    /**
+     * Draws the newest snapshot, then asks for the next one. Runs on the
+     * event dispatch thread.
+     */
+    private void showFrame() {
+        if (this.view == null) {
+            return;
+        }
+        boolean changed = false;
+        synchronized (this) {
+            if (this.fresh) {
+                this.view.copyFrom(this.snapshot);
+                this.fresh = false;
+                changed = true;
+            }
+        }
+        if (changed) {
+            this.display.repaint();
+        }
+        this.wanted.set(true);
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Solves a Sudoku board as an exact cover problem with Knuth's Dancing Links
+ * (Algorithm X). On a 9x9 board each of the 729 rows places one digit in
+ * one cell, and each of the 324 columns is a constraint that must be covered
+ * exactly once: every cell is filled, and every row, column, and box holds
+ * every digit.
+ * 
+ * The links are built once in the constructor for one board size (9x9
+ * unless a box size is given) and reused for every puzzle; a solve always
+ * uncovers everything it covered before returning.
+ */
+public class DancingLinksSolver implements SudokuSolver {
+    private static final int ROOT = 0;
+
+    // Fields for the board shape the matrix was built for
+    private final Geometry geometry;
+    private final int n;
+    private final int cells;
+    private final int columns;
+    private final int rows;
+
+    // Fields for the linked nodes (node 0 is the root, 1-324 are the column headers)
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] rowOf;
+    private int[] size; // number of rows left in each column
+    private int[] rowStart; // first node of each row
+    private int[] solution; // rows picked by the search, by depth
+    private int[] givens; // rows picked from the board's values
+    // Fields for the counters of the current search
+    private long nodes;
+    private long backtracks;
+    private int maxDepth;
+
+    /**
+     * Constructor for DancingLinksSolver
+     * Builds the exact cover matrix for a 9x9 board.
+     */
+    public DancingLinksSolver() {
+        this(3);
+    }
+
+    /**
+     * Constructor for DancingLinksSolver
+     * Builds the exact cover matrix for boards with boxSize x boxSize boxes.
+     * @param boxSize the width (and height) of each box, from 2 to 5
+     */
+    public DancingLinksSolver(int boxSize) {
+        this.geometry = Geometry.of(boxSize);
+        this.n = this.geometry.getSize();
+        this.cells = this.n * this.n;
+        this.columns = 4 * this.cells;
+        this.rows = this.cells * this.n;
+        int nodes = 1 + this.columns + 4 * this.rows;
+        this.left = new int[nodes];
+        this.right = new int[nodes];
+        this.up = new int[nodes];
+        this.down = new int[nodes];
+        this.column = new int[nodes];
+        this.rowOf = new int[nodes];
+        this.size = new int[nodes];
+        this.rowStart = new int[this.rows];
+        this.solution = new int[this.cells];
+        this.givens = new int[this.cells];
+
+        // link the root and column headers in a ring
+        for (int h = 0; h <= this.columns; h++) {
+            this.left[h] = h == 0 ? this.columns : h - 1;
+            this.right[h] = h == this.columns ? 0 : h + 1;
+            this.up[h] = h;
+            this.down[h] = h;
+            this.column[h] = h;
+        }
+
+        int node = this.columns + 1;
+        for (int r = 0; r < this.rows; r++) {
+            int cell = r / this.n;
+            int digit = r % this.n;
+            int row = cell / this.n;
+            int col = cell % this.n;
+            int[] cols = {
+                1 + cell,
+                1 + this.cells + row * this.n + digit,
+                1 + 2 * this.cells + col * this.n + digit,
+                1 + 3 * this.cells + this.geometry.boxOf(cell) * this.n + digit
+            };
+            this.rowStart[r] = node;
+            for (int k = 0; k < 4; k++) {
+                int h = cols[k];
+                // append the node to the bottom of its column
+                this.column[node] = h;
+                this.rowOf[node] = r;
+                this.up[node] = this.up[h];
+                this.down[node] = h;
+                this.down[this.up[h]] = node;
+                this.up[h] = node;
+                this.size[h]++;
+                // link the node into its row ring
+                this.left[node] = k == 0 ? node + 3 : node - 1;
+                this.right[node] = k == 3 ? node - 3 : node + 1;
+                node++;
+            }
+        }
+    }
+
+    /**
+     * Solves the board in place. If there is no solution, the board is left
+     * with only its original values.
+     * @param board the board to be solved
+     * @return SOLVED if solved, UNSOLVABLE otherwise
+     */
+    public SolveResult solve(Board board) {
+        long startTime = System.nanoTime();
+        long startCpu = SolveStats.threadCpuTime();
+        boolean solved = this.run(board, board, 1) == 1;
+        long endCpu = SolveStats.threadCpuTime();
+        // Algorithm X makes no deductions outside the search, so there are no propagations
+        SolveStats stats = new SolveStats(this.nodes, this.backtracks, 0, this.maxDepth,
+                System.nanoTime() - startTime, startCpu < 0 ? -1 : endCpu - startCpu);
+        return new SolveResult(solved ? SolveResult.Status.SOLVED : SolveResult.Status.UNSOLVABLE, board, stats);
+    }
+
+    /**
+     * Counts the solutions of a board, stopping as soon as limit of them
+     * have been found. The board is not changed.
+     * @param board the board to be checked
+     * @param limit the most solutions to look for (2 to check uniqueness)
+     * @return the number of solutions found, at most limit
+     */
+    public int countSolutions(Board board, int limit) {
+        return this.run(board, null, limit);
+    }
+
+    /**
+     * Covers the rows of the board's values, searches, and then restores
+     * the matrix.
+     * @param board the board to be searched
+     * @param out the board the first solution is written to, or null
+     * @param limit the most solutions to look for
+     * @return the number of solutions found
+     * @throws IllegalArgumentException if the board is not the size the solver was built for
+     */
+    private int run(Board board, Board out, int limit) {
+        if (board.getGeometry() != this.geometry) {
+            throw new IllegalArgumentException("DancingLinksSolver.run():: board is " + board.getCols() + "x"
+                    + board.getCols() + ", solver is " + this.n + "x" + this.n);
+        }
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.maxDepth = 0;
+        if (!BacktrackSolver.hasValidValues(board)) {
+            return 0;
+        }
+
+        // take the rows of the board's values out of the matrix
+        int numGivens = 0;
+        for (int cell = 0; cell < this.cells; cell++) {
+            int value = board.value(cell / this.n, cell % this.n);
+            if (value != 0) {
+                int r = cell * this.n + value - 1;
+                this.selectRow(this.rowStart[r]);
+                this.givens[numGivens++] = r;
+            }
+        }
+
+        int found = this.search(0, out, limit);
+
+        // put the matrix back the way the constructor built it
+        for (int i = numGivens - 1; i >= 0; i--) {
+            this.unselectRow(this.rowStart[this.givens[i]]);
+        }
+        return found;
+    }
+
+    /**
+     * Searches for rows that cover every remaining column, writing the first
+     * solution to the board once all columns are covered.
+     * @param depth the number of rows picked so far
+     * @param board the board to write the solution to, or null
+     * @param limit the most solutions to look for
+     * @return the number of solutions found
+     */
+    private int search(int depth, Board board, int limit) {
+        if (this.right[ROOT] == ROOT) {
+            for (int i = 0; i < depth && board != null; i++) {
+                int r = this.solution[i];
+                board.set(r / this.n / this.n, r / this.n % this.n, r % this.n + 1, true);
+            }
+            return 1;
+        }
+
+        // pick the column with the fewest rows left
+        int best = this.right[ROOT];
+        for (int h = this.right[best]; h != ROOT; h = this.right[h]) {
+            if (this.size[h] < this.size[best]) {
+                best = h;
+            }
+        }
+        if (this.size[best] == 0) {
+            return 0;
+        }
+
+        int found = 0;
+        this.cover(best);
+        for (int node = this.down[best]; node != best && found < limit; node = this.down[node]) {
+            this.solution[depth] = this.rowOf[node];
+            this.nodes++;
+            this.maxDepth = Math.max(this.maxDepth, depth + 1);
+            for (int j = this.right[node]; j != node; j = this.right[j]) {
+                this.cover(this.column[j]);
+            }
+            int below = this.search(depth + 1, found == 0 ? board : null, limit - found);
+            if (below == 0) {
+                this.backtracks++;
+            }
+            found += below;
+            for (int j = this.left[node]; j != node; j = this.left[j]) {
+                this.uncover(this.column[j]);
+            }
+        }
+        this.uncover(best);
+        return found;
+    }
+
+    /**
+     * Covers every column of the row a node is in.
+     * @param node a node of the row
+     */
+    private void selectRow(int node) {
+        int j = node;
+        do {
+            this.cover(this.column[j]);
+            j = this.right[j];
+        } while (j != node);
+    }
+
+    /**
+     * Uncovers every column of the row a node is in, in reverse order.
+     * @param node a node of the row
+     */
+    private void unselectRow(int node) {
+        int j = this.left[node];
+        do {
+            this.uncover(this.column[j]);
+            j = this.left[j];
+        } while (j != this.left[node]);
+    }
+
+    /**
+     * Removes a column header and every row that has a node in the column.
+     * @param h the column header
+     */
+    private void cover(int h) {
+        this.right[this.left[h]] = this.right[h];
+        this.left[this.right[h]] = this.left[h];
+        for (int i = this.down[h]; i != h; i = this.down[i]) {
+            for (int j = this.right[i]; j != i; j = this.right[j]) {
+                this.up[this.down[j]] = this.up[j];
+                this.down[this.up[j]] = this.down[j];
+                this.size[this.column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Puts back a column removed by cover.
+     * @param h the column header
+     */
+    private void uncover(int h) {
+        for (int i = this.up[h]; i != h; i = this.up[i]) {
+            for (int j = this.left[i]; j != i; j = this.left[j]) {
+                this.size[this.column[j]]++;
+                this.up[this.down[j]] = j;
+                this.down[this.up[j]] = j;
+            }
+        }
+        this.right[this.left[h]] = h;
+        this.left[this.right[h]] = h;
+    }
+
+    public static void main(String[] args) {
+        Board board = new Board(args.length > 0 ? args[0] : "board1.txt");
+        System.out.println("Unsolved:");
+        System.out.println(board);
+
+        SolveResult result = new DancingLinksSolver().solve(board);
+        System.out.println(result);
+        System.out.println(board);
+        System.out.println("Valid solution: " + board.validSolution());
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how solvable random boards are for a range of locked cell counts,
+ * without a display. Each setting runs many trials: a random Board(int,
+ * Random) solved with a BacktrackSolver. The trials are spread over every
+ * core. Each trial is seeded from the run seed, the setting, and the trial
+ * number, so a run gives the same boards (and the same solvable counts)
+ * whatever the number of threads. One CSV row is written per setting.
+ *
+ * A random board can run out of places to put values before it has all
+ * the locked cells asked for (from about 60 on), so each row also reports
+ * the mean number of givens the boards really had and how many boards
+ * came up short.
+ */
+public class ExperimentRunner {
+    public static final String HEADER = "locked_cells,mean_givens,short_boards,trials,solvable,solvable_rate,"
+            + "gave_up,mean_us,p50_us,p90_us,p99_us,max_us,mean_nodes,p50_nodes,p99_nodes,max_nodes";
+    private static final int TRIALS_PER_TASK = 250;
+
+    // Fields for the sweep
+    private int threads;
+    private long seed;
+    private long maxNodes; // 0 for no limit
+    private ThreadLocal<BacktrackSolver> solvers;
+
+    /**
+     * The tallies of one setting, added to by many threads at once.
+     */
+    private static class Row {
+        private int lockedCells;
+        private int trials;
+        private AtomicLong solvable = new AtomicLong();
+        private AtomicLong gaveUp = new AtomicLong(); // trials stopped by the node limit
+        private AtomicLong givens = new AtomicLong(); // locked cells the boards really got, summed
+        private AtomicLong shortBoards = new AtomicLong(); // boards with fewer locked cells than asked for
+        private LatencyHistogram wallNanos = new LatencyHistogram();
+        private LatencyHistogram nodes = new LatencyHistogram();
+
+        /**
+         * Constructor for Row
+         * @param lockedCells the number of locked cells
+         * @param trials the number of trials
+         */
+        private Row(int lockedCells, int trials) {
+            this.lockedCells = lockedCells;
+            this.trials = trials;
+        }
+
+        /**
+         * Returns the row as a line of CSV.
+         * @return the CSV line, matching HEADER
+         */
+        private String toCsv() {
+            return String.format("%d,%.2f,%d,%d,%d,%.4f,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d", this.lockedCells,
+                    this.givens.get() / (double) this.trials, this.shortBoards.get(), this.trials,
+                    this.solvable.get(), this.solvable.get() / (double) this.trials, this.gaveUp.get(),
+                    this.wallNanos.mean() / 1000, this.wallNanos.percentile(0.5) / 1000.0,
+                    this.wallNanos.percentile(0.9) / 1000.0, this.wallNanos.percentile(0.99) / 1000.0,
+                    this.wallNanos.max() / 1000.0, this.nodes.mean(), this.nodes.percentile(0.5),
+                    this.nodes.percentile(0.99), this.nodes.max());
+        }
+    }
+
+    /**
+     * Constructor for ExperimentRunner
+     * @param threads the number of worker threads
+     * @param seed the seed every trial's board is made from
+     * @param maxNodes the most search nodes per trial before giving up, 0 for no limit
+     */
+    public ExperimentRunner(int threads, long seed, long maxNodes) {
+        this.threads = threads;
+        this.seed = seed;
+        this.maxNodes = maxNodes;
+        this.solvers = ThreadLocal.withInitial(BacktrackSolver::new);
+    }
+
+    /**
+     * Returns the random source for one trial.
+     * @param lockedCells the number of locked cells
+     * @param trial the trial number
+     * @return the seeded random source
+     */
+    private Random random(int lockedCells, int trial) {
+        return new Random((this.seed * 1_000_003L + lockedCells) * 1_000_003L + trial);
+    }
+
+    /**
+     * Runs a range of trials of one setting.
+     * @param row the setting and its tallies
+     * @param first the first trial
+     * @param last the trial after the range
+     */
+    private void runTrials(Row row, int first, int last) {
+        BacktrackSolver solver = this.solvers.get();
+        for (int trial = first; trial < last; trial++) {
+            Board board = new Board(row.lockedCells, this.random(row.lockedCells, trial));
+            int given = board.numLocked();
+            row.givens.addAndGet(given);
+            if (given < row.lockedCells) {
+                row.shortBoards.incrementAndGet();
+            }
+            SolveBudget budget = new SolveBudget(0, this.maxNodes, null);
+            long startTime = System.nanoTime();
+            SolveResult result = solver.solve(board, budget);
+            row.wallNanos.record(System.nanoTime() - startTime);
+            row.nodes.record(result.getStats().getNodes());
+            if (result.isSolved()) {
+                row.solvable.incrementAndGet();
+            } else if (result.getStatus() == SolveResult.Status.TIMED_OUT) {
+                row.gaveUp.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Runs every setting from one locked cell count to another and writes a
+     * CSV row for each, in order, as soon as it and the rows before it are
+     * done.
+     * @param from the first number of locked cells
+     * @param to the last number of locked cells
+     * @param step the change in locked cells between settings
+     * @param trials the number of trials per setting
+     * @param out where the CSV is written
+     * @throws IOException if writing fails or a trial fails
+     */
+    public void run(int from, int to, int step, int trials, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        List<Row> rows = new ArrayList<Row>();
+        List<List<Future<?>>> tasks = new ArrayList<List<Future<?>>>();
+        try {
+            for (int locked = from; locked <= to; locked += step) {
+                Row row = new Row(locked, trials);
+                List<Future<?>> rowTasks = new ArrayList<Future<?>>();
+                for (int first = 0; first < trials; first += TRIALS_PER_TASK) {
+                    int start = first;
+                    int end = Math.min(trials, first + TRIALS_PER_TASK);
+                    rowTasks.add(pool.submit(() -> this.runTrials(row, start, end)));
+                }
+                rows.add(row);
+                tasks.add(rowTasks);
+            }
+
+            out.write(HEADER);
+            out.write('\n');
+            for (int i = 0; i < rows.size(); i++) {
+                for (Future<?> task : tasks.get(i)) {
+                    task.get();
+                }
+                out.write(rows.get(i).toCsv());
+                out.write('\n');
+                out.flush();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("ExperimentRunner.run():: interrupted");
+        } catch (ExecutionException ex) {
+            throw new IOException("ExperimentRunner.run():: a trial failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: java ExperimentRunner <fromLocked> <toLocked> <step> <trials> [out.csv]"
+                    + " [--seed <seed>] [--threads <n>] [--max-nodes <n>]");
+            return;
+        }
+        int from = Integer.parseInt(args[0]);
+        int to = Integer.parseInt(args[1]);
+        int step = Integer.parseInt(args[2]);
+        int trials = Integer.parseInt(args[3]);
+        String filename = null;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxNodes = 0;
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("--seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-nodes")) {
+                maxNodes = Long.parseLong(args[++i]);
+            } else {
+                filename = args[i];
+            }
+        }
+        if (step < 1 || from < 0 || to > 81 || from > to) {
+            System.out.println("ExperimentRunner:: need 0 <= fromLocked <= toLocked <= 81 and step >= 1");
+            return;
+        }
+
+        ExperimentRunner runner = new ExperimentRunner(threads, seed, maxNodes);
+        long startTime = System.nanoTime();
+        Writer out = filename == null ? new OutputStreamWriter(System.out) : new BufferedWriter(new FileWriter(filename));
+        try {
+            runner.run(from, to, step, trials, out);
+        } finally {
+            if (filename != null) {
+                out.close();
+            }
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.err.println("Ran " + ((to - from) / step + 1) * (long) trials + " trials on " + threads + " threads in "
+                + String.format("%.2f", seconds) + " s");
+    }
+}
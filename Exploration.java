@@ -12,7 +12,13 @@ public class Exploration {
         int validSolutionCount = 0;
 
         for (int i = 0; i < this.runs; i++) {
-            boolean solved = newGame.solve(5);
+            // solve at full speed, then replay the search at 200 steps a second
+            SolveTrace trace = newGame.record();
+            boolean solved = trace.isSolved();
+            newGame.getDisplay().play(trace, 200);
+            while (newGame.getDisplay().isPlaying()) {
+                Thread.sleep(50);
+            }
 
             Thread.sleep(3000); // pause between each board
             this.newGame.resetGame();
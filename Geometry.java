@@ -0,0 +1,174 @@
+import java.util.Arrays;
+
+/**
+ * The shape of a Sudoku board with boxSize x boxSize boxes: a 9x9 board has
+ * boxSize 3, 16x16 has 4, and 25x25 has 5. It holds the lookup tables the
+ * board and solvers share (the box of each cell, the peers of each cell, and
+ * the cells of each row, column, and box). One instance per box size is
+ * built on first use and shared.
+ */
+public class Geometry {
+    public static final int MAX_BOX_SIZE = 5; // digit masks are ints, so 25 digits at most
+    private static final Geometry[] SHAPES = new Geometry[MAX_BOX_SIZE + 1];
+
+    // Fields for the geometry
+    private int boxSize;
+    private int size;
+    private int cells;
+    private int allDigits;
+    private int[] boxOf;
+    private int[][] peers;
+    private int[][] units;
+
+    /**
+     * Constructor for Geometry
+     * Builds the lookup tables for a box size.
+     * @param boxSize the width (and height) of each box
+     */
+    private Geometry(int boxSize) {
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.cells = this.size * this.size;
+        this.allDigits = (1 << (this.size + 1)) - 2;
+
+        this.boxOf = new int[this.cells];
+        for (int i = 0; i < this.cells; i++) {
+            int r = i / this.size;
+            int c = i % this.size;
+            this.boxOf[i] = (r / boxSize) * boxSize + c / boxSize;
+        }
+
+        // the cells of every row, then every column, then every box
+        this.units = new int[3 * this.size][this.size];
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                this.units[i][j] = i * this.size + j;
+                this.units[this.size + i][j] = j * this.size + i;
+                int r = (i / boxSize) * boxSize + j / boxSize;
+                int c = (i % boxSize) * boxSize + j % boxSize;
+                this.units[2 * this.size + i][j] = r * this.size + c;
+            }
+        }
+
+        this.peers = new int[this.cells][];
+        for (int i = 0; i < this.cells; i++) {
+            int[] list = new int[3 * this.size];
+            int n = 0;
+            for (int j = 0; j < this.cells; j++) {
+                if (j != i && (j / this.size == i / this.size || j % this.size == i % this.size
+                        || this.boxOf[j] == this.boxOf[i])) {
+                    list[n++] = j;
+                }
+            }
+            this.peers[i] = Arrays.copyOf(list, n);
+        }
+    }
+
+    /**
+     * Returns the geometry for a box size.
+     * @param boxSize the width (and height) of each box, from 2 to 5
+     * @return the shared geometry
+     */
+    public static synchronized Geometry of(int boxSize) {
+        if (boxSize < 2 || boxSize > MAX_BOX_SIZE) {
+            throw new IllegalArgumentException("Geometry.of():: box size must be 2-" + MAX_BOX_SIZE + ", not " + boxSize);
+        }
+        if (SHAPES[boxSize] == null) {
+            SHAPES[boxSize] = new Geometry(boxSize);
+        }
+        return SHAPES[boxSize];
+    }
+
+    /**
+     * Returns the width (and height) of each box.
+     * @return the box size
+     */
+    public int getBoxSize() {
+        return this.boxSize;
+    }
+
+    /**
+     * Returns the number of rows (and columns and digits).
+     * @return the board size
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of cells.
+     * @return the number of cells
+     */
+    public int getCells() {
+        return this.cells;
+    }
+
+    /**
+     * Returns the mask with a bit set for every digit (bits 1 to size).
+     * @return the mask of every digit
+     */
+    public int getAllDigits() {
+        return this.allDigits;
+    }
+
+    /**
+     * Returns the box of a cell.
+     * @param cell the index (row * size + col) of the cell
+     * @return the index of the box containing the cell
+     */
+    public int boxOf(int cell) {
+        return this.boxOf[cell];
+    }
+
+    /**
+     * Returns the cells sharing a row, column, or box with a cell.
+     * @param cell the index of the cell
+     * @return the peers of the cell
+     */
+    public int[] peers(int cell) {
+        return this.peers[cell];
+    }
+
+    /**
+     * Returns the cells of every row, column, and box, in that order.
+     * @return the cells of every unit
+     */
+    public int[][] units() {
+        return this.units;
+    }
+
+    /**
+     * Returns the character used for a digit in the one-line format: 1-9,
+     * then A, B, C, ... for 10 and up, and '.' for 0.
+     * @param value the digit
+     * @return the digit's character
+     */
+    public static char digitChar(int value) {
+        if (value == 0) {
+            return '.';
+        }
+        return value <= 9 ? (char) ('0' + value) : (char) ('A' + value - 10);
+    }
+
+    /**
+     * Returns the digit for a character of the one-line format, the reverse
+     * of digitChar(). Letters can be either case.
+     * @param ch the character
+     * @return the digit, 0 for '.' or '0', or -1 if it is not a digit
+     */
+    public static int digitValue(int ch) {
+        if (ch == '.' || ch == '0') {
+            return 0;
+        }
+        if (ch >= '1' && ch <= '9') {
+            return ch - '0';
+        }
+        if (ch >= 'A' && ch <= 'Z') {
+            return ch - 'A' + 10;
+        }
+        if (ch >= 'a' && ch <= 'z') {
+            return ch - 'a' + 10;
+        }
+        return -1;
+    }
+}
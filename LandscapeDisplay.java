@@ -14,6 +14,7 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -22,6 +23,9 @@ import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.JButton;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.event.*;
 
 /**
@@ -29,15 +33,35 @@ import java.awt.event.*;
  * class rather than a Landscape) and we do not make the assumption that
  * we are displaying a grid.
  * 
+ * By default the display draws from a cached image of the grid and, on
+ * repaint(), only redraws the cells that changed since they were last drawn.
+ * setCachedRendering(false) goes back to redrawing the whole window. The
+ * window sizes itself to the board, so 16x16 and 25x25 boards fit too.
+ * 
+ * play() replays a recorded SolveTrace at any speed, with a slider to seek
+ * through it. The replay runs on the event dispatch thread from its own
+ * board, so nothing is solved while it plays.
+ * 
  * @author bseastwo
  */
 public class LandscapeDisplay {
     JFrame win;
     JButton resetBtn; // button to reset board
-    protected Board scape;
+    protected volatile Board scape; // set from any thread, drawn on the event dispatch thread
     private LandscapePanel canvas;
     private int gridScale; // width (and height) of each square in the grid
-    public boolean resetBoard; // reset condition
+    public volatile boolean resetBoard; // reset condition
+    private boolean cachedRendering; // redraw only changed cells over a cached grid
+    // Fields for replaying a trace, only used on the event dispatch thread
+    private static final int REPLAY_FPS = 30;
+    private volatile SolveTrace trace; // also read by exportTrace()
+    private SolveTrace.Cursor cursor;
+    private Timer replayTimer;
+    private double stepsPerSecond;
+    private double stepsDue; // steps owed to the replay but not yet applied
+    private JSlider seekBar;
+    private boolean updatingSeekBar; // the replay, not the user, is moving the slider
+    private volatile boolean playing;
 
     /**
      * Initializes a display window for a Landscape.
@@ -54,14 +78,35 @@ public class LandscapeDisplay {
         this.scape = scape;
         this.gridScale = 40;
         this.resetBoard = false;
+        this.cachedRendering = true;
 
         // create a panel in which to display the Landscape
-        this.canvas = new LandscapePanel(11 * this.gridScale, 11 * this.gridScale);
+        int side = this.sideFor(scape);
+        this.canvas = new LandscapePanel(side, side);
 
         // add a button panel to the display
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(resetBtn);
         this.win.add(buttonPanel, BorderLayout.NORTH);
+        // ref: https://stackoverflow.com/questions/22917785/add-a-function-to-jbutton
+        this.resetBtn.addActionListener(new ActionListener() { 
+            public void actionPerformed(ActionEvent click) {
+                if(scape.getFinished()) {
+                    resetBoard = true;
+                }
+            }
+        });
+
+        // add a seek bar, shown while a trace is replayed
+        this.replayTimer = new Timer(1000 / REPLAY_FPS, event -> this.replayFrame());
+        this.seekBar = new JSlider(0, 0, 0);
+        this.seekBar.addChangeListener(event -> {
+            if (!this.updatingSeekBar && this.cursor != null) {
+                this.seekTo(this.seekBar.getValue());
+            }
+        });
+        this.seekBar.setVisible(false);
+        this.win.add(this.seekBar, BorderLayout.SOUTH);
 
         // add the panel to the window, layout, and display
         this.win.add(this.canvas, BorderLayout.CENTER);
@@ -99,11 +144,60 @@ public class LandscapeDisplay {
     }
 
     /**
-     * Sets the display to a new board.
+     * Sets the display to a new board, ending any replay.
      * @param scape the new board to be set to
      */
     public void setBoard(Board scape) {
+        this.stop();
         this.scape = scape;
+        this.onEventThread(this::boardChanged);
+    }
+
+    /**
+     * Returns the width (and height) of the panel for a board: its cells
+     * plus a cell's margin on each side, which holds the banner.
+     * @param board the board to be shown
+     * @return the side of the panel in pixels
+     */
+    private int sideFor(Board board) {
+        return (board.getCols() + 2) * this.gridScale;
+    }
+
+    /**
+     * Forgets what was drawn and resizes the window if the new board is a
+     * different size. Runs on the event dispatch thread.
+     */
+    private void boardChanged() {
+        this.canvas.forget();
+        int side = this.sideFor(this.scape);
+        if (this.canvas.getPreferredSize().width != side) {
+            this.canvas.setPreferredSize(new Dimension(side, side));
+            this.win.pack();
+        }
+        this.canvas.repaint();
+    }
+
+    /**
+     * Runs a task on the event dispatch thread: now if this is that thread,
+     * otherwise later.
+     * @param task the task to be run
+     */
+    private void onEventThread(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+        } else {
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+    /**
+     * Turns the cached rendering mode on or off.
+     * @param cachedRendering true to redraw only changed cells over a cached
+     *                        grid, false to redraw the whole window each time
+     */
+    public void setCachedRendering(boolean cachedRendering) {
+        this.cachedRendering = cachedRendering;
+        this.onEventThread(this.canvas::forget);
     }
 
     /**
@@ -119,15 +213,6 @@ public class LandscapeDisplay {
      * @throws InterruptedException in case program is stopped
      */
     public void resetButtonClick() throws InterruptedException {
-        // ref: https://stackoverflow.com/questions/22917785/add-a-function-to-jbutton
-        this.resetBtn.addActionListener(new ActionListener() { 
-            public void actionPerformed(ActionEvent click) {
-                if(scape.getFinished()) {
-                    resetBoard = true;
-                }
-            }
-        });
-        
         if (resetBoard) {
             this.scape = new Board(this.scape.getInitialLocked());
             this.setBoard(this.scape);
@@ -136,11 +221,158 @@ public class LandscapeDisplay {
         }
     }
 
+    /**
+     * Replays a recorded search from its start, on a board of its own.
+     * Returns at once; the replay runs on the event dispatch thread, and
+     * getBoard() returns the replay board until another board is set.
+     * @param trace the search to replay
+     * @param stepsPerSecond how many steps to show per second
+     */
+    public void play(SolveTrace trace, int stepsPerSecond) {
+        SolveTrace.Cursor cursor = trace.cursor();
+        this.scape = cursor.getBoard();
+        this.playing = true;
+        SwingUtilities.invokeLater(() -> {
+            this.trace = trace;
+            this.cursor = cursor;
+            this.stepsPerSecond = stepsPerSecond;
+            this.stepsDue = 0;
+            this.boardChanged();
+            this.updatingSeekBar = true;
+            this.seekBar.setMaximum(trace.size());
+            this.seekBar.setValue(0);
+            this.updatingSeekBar = false;
+            if (!this.seekBar.isVisible()) {
+                this.seekBar.setVisible(true);
+                this.win.pack();
+            }
+            this.repaint();
+            this.replayTimer.start();
+        });
+    }
+
+    /**
+     * Sets the speed of the replay.
+     * @param stepsPerSecond how many steps to show per second
+     */
+    public void setReplaySpeed(int stepsPerSecond) {
+        SwingUtilities.invokeLater(() -> this.stepsPerSecond = stepsPerSecond);
+    }
+
+    /**
+     * Moves the replay to a step. A paused replay stays paused.
+     * @param step the number of steps to have shown
+     */
+    public void seek(int step) {
+        SwingUtilities.invokeLater(() -> this.seekTo(step));
+    }
+
+    /**
+     * Pauses the replay.
+     */
+    public void pause() {
+        SwingUtilities.invokeLater(() -> this.replayTimer.stop());
+    }
+
+    /**
+     * Resumes a paused replay.
+     */
+    public void resume() {
+        SwingUtilities.invokeLater(() -> {
+            if (this.cursor != null && !this.cursor.atEnd()) {
+                this.playing = true;
+                this.replayTimer.start();
+            }
+        });
+    }
+
+    /**
+     * Returns if a replay is running or paused before its last step.
+     * @return true from play() until the replay first reaches its end
+     */
+    public boolean isPlaying() {
+        return this.playing;
+    }
+
+    /**
+     * Writes the trace being replayed to a file.
+     * @param filename the file to be written
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if nothing has been replayed
+     */
+    public void exportTrace(String filename) throws IOException {
+        SolveTrace trace = this.trace;
+        if (trace == null) {
+            throw new IllegalStateException("LandscapeDisplay.exportTrace():: no trace is loaded");
+        }
+        trace.save(filename);
+    }
+
+    /**
+     * Stops the replay for good, e.g. before a new board is shown.
+     */
+    private void stop() {
+        this.playing = false;
+        SwingUtilities.invokeLater(() -> {
+            this.replayTimer.stop();
+            this.trace = null;
+            this.cursor = null;
+        });
+    }
+
+    /**
+     * Applies the steps due since the last frame and repaints. Runs on the
+     * event dispatch thread.
+     */
+    private void replayFrame() {
+        if (this.cursor == null) {
+            this.replayTimer.stop();
+            return;
+        }
+        this.stepsDue += this.stepsPerSecond / REPLAY_FPS;
+        int steps = (int) this.stepsDue;
+        this.stepsDue -= steps;
+        this.seekTo(this.cursor.getStep() + steps);
+    }
+
+    /**
+     * Moves the replay to a step, marking the board finished at the end.
+     * Runs on the event dispatch thread.
+     * @param step the number of steps to have shown
+     */
+    private void seekTo(int step) {
+        if (this.cursor == null) {
+            return;
+        }
+        this.cursor.seek(step);
+        Board board = this.cursor.getBoard();
+        if (this.cursor.atEnd()) {
+            this.replayTimer.stop();
+            if (!board.getFinished()) {
+                board.setFinished(true);
+            }
+            this.playing = false;
+        } else if (board.getFinished()) {
+            board.setFinished(false);
+        }
+        this.updatingSeekBar = true;
+        this.seekBar.setValue(this.cursor.getStep());
+        this.updatingSeekBar = false;
+        this.repaint();
+    }
+
     /**
      * This inner class provides the panel on which Landscape elements
      * are drawn.
      */
     private class LandscapePanel extends JPanel {
+        // Fields for the cached rendering, only used on the event dispatch thread
+        private BufferedImage grid; // the grid lines, drawn once per board size
+        private Geometry gridGeometry; // the board size the grid was drawn for
+        private int[] drawn; // each cell's value (+ 64 if locked) when last drawn, or null
+        private boolean drawnFinished;
+        private Rectangle clip = new Rectangle();
+
         /**
          * Creates the panel.
          * 
@@ -162,12 +394,109 @@ public class LandscapeDisplay {
          */
         public void paintComponent(Graphics g) {
             super.paintComponent(g);
-            scape.draw(g, gridScale);
+            if (!cachedRendering) {
+                scape.draw(g, gridScale);
+                return;
+            }
+            Board board = scape;
+            g.drawImage(this.grid(board), 0, 0, null);
+            g.getClipBounds(this.clip);
+            for (int i = 0; i < board.getRows(); i++) {
+                for (int j = 0; j < board.getCols(); j++) {
+                    int x = 25 + j * gridScale;
+                    int y = 20 + i * gridScale;
+                    if (x < this.clip.x + this.clip.width && x + gridScale > this.clip.x
+                            && y < this.clip.y + this.clip.height && y + gridScale > this.clip.y) {
+                        board.drawCell(g, i, j, gridScale);
+                    }
+                }
+            }
+            board.drawBanner(g, gridScale);
         } // end paintComponent
 
+        /**
+         * Returns the image of the grid lines for a board, drawing it if the
+         * board is a new size.
+         * @param board the board being drawn
+         * @return the grid image
+         */
+        private BufferedImage grid(Board board) {
+            Dimension size = this.getPreferredSize();
+            if (this.grid == null || this.gridGeometry != board.getGeometry() || this.grid.getWidth() != size.width) {
+                this.grid = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+                Graphics g = this.grid.createGraphics();
+                g.setColor(Color.white);
+                g.fillRect(0, 0, size.width, size.height);
+                board.drawGrid(g, gridScale);
+                g.dispose();
+                this.gridGeometry = board.getGeometry();
+            }
+            return this.grid;
+        }
+
+        /**
+         * Forgets what was drawn, so the next repaint draws everything.
+         */
+        public void forget() {
+            this.drawn = null;
+        }
+
+        /**
+         * Asks Swing to repaint only the cells (and the banner) that changed
+         * since they were last drawn. Runs on the event dispatch thread.
+         */
+        public void repaintChanged() {
+            Board board = scape;
+            int size = board.getCols();
+            if (this.drawn == null || this.drawn.length != size * size) {
+                this.drawn = new int[size * size];
+                this.record(board);
+                this.repaint();
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int state = board.value(i, j) + (board.isLocked(i, j) ? 64 : 0);
+                    if (this.drawn[i * size + j] != state) {
+                        this.drawn[i * size + j] = state;
+                        this.repaint(25 + j * gridScale, 20 + i * gridScale, gridScale, gridScale);
+                    }
+                }
+            }
+            if (board.getFinished() != this.drawnFinished) {
+                this.drawnFinished = board.getFinished();
+                // the banner's text sits above scale * (size + 1) + 10, starting at scale * 4 + 20
+                this.repaint(gridScale * 4 + 20, gridScale * size, gridScale * 7, gridScale + 20);
+            }
+        }
+
+        /**
+         * Records every cell of the board as drawn.
+         * @param board the board being drawn
+         */
+        private void record(Board board) {
+            int size = board.getCols();
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    this.drawn[i * size + j] = board.value(i, j) + (board.isLocked(i, j) ? 64 : 0);
+                }
+            }
+            this.drawnFinished = board.getFinished();
+        }
+
     } // end LandscapePanel
 
+    /**
+     * Repaints the display: only the changed cells in cached rendering
+     * mode, otherwise the whole window. Can be called from any thread.
+     */
     public void repaint() {
-        this.win.repaint();
+        if (!this.cachedRendering) {
+            this.win.repaint();
+        } else if (SwingUtilities.isEventDispatchThread()) {
+            this.canvas.repaintChanged();
+        } else {
+            SwingUtilities.invokeLater(this.canvas::repaintChanged);
+        }
     }
 }
\ No newline at end of file
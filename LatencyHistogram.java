@@ -0,0 +1,156 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values (such as latencies in nanoseconds) with
+ * log-linear buckets: every power of two is split into 16 buckets, so any
+ * percentile is reported within about 6% of the true value in a fixed 1 KB
+ * of counters. Values can be recorded from many threads at once.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    // Fields for the bucket counts
+    private AtomicLongArray counts;
+    private AtomicLongArray totals; // [count, sum, max]
+
+    /**
+     * Constructor for LatencyHistogram
+     * Initializes an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.totals = new AtomicLongArray(3);
+    }
+
+    /**
+     * Returns the bucket a value falls in. Values below 16 get a bucket each.
+     * @param value the value to be placed
+     * @return the bucket of the value
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     * @param bucket the bucket
+     * @return the bucket's highest value
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Adds a value to the histogram. Negative values count as 0.
+     * @param value the value to be added
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        this.counts.incrementAndGet(bucket(value));
+        this.totals.incrementAndGet(0);
+        this.totals.addAndGet(1, value);
+        long max = this.totals.get(2);
+        while (value > max && !this.totals.compareAndSet(2, max, value)) {
+            max = this.totals.get(2);
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     * @return the number of values
+     */
+    public long count() {
+        return this.totals.get(0);
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     * @return the mean, or 0 if there are none
+     */
+    public double mean() {
+        long n = this.count();
+        return n == 0 ? 0 : (double) this.totals.get(1) / n;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     * @return the largest value, or 0 if there are none
+     */
+    public long max() {
+        return this.totals.get(2);
+    }
+
+    /**
+     * Returns the value below which the given fraction of values fall, e.g.
+     * 0.99 for the 99th percentile. The result is the top of the bucket the
+     * percentile lands in, capped at the largest value recorded.
+     * @param fraction the fraction of values, between 0 and 1
+     * @return the percentile, or 0 if there are no values
+     */
+    public long percentile(double fraction) {
+        long n = this.count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), this.max());
+            }
+        }
+        return this.max();
+    }
+
+    /**
+     * Adds every value of another histogram to this one.
+     * @param other the histogram to be added
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                this.counts.addAndGet(i, c);
+            }
+        }
+        this.totals.addAndGet(0, other.totals.get(0));
+        this.totals.addAndGet(1, other.totals.get(1));
+        long max = this.totals.get(2);
+        while (other.max() > max && !this.totals.compareAndSet(2, max, other.max())) {
+            max = this.totals.get(2);
+        }
+    }
+
+    /**
+     * Returns a one-line summary of the histogram with values divided by a
+     * unit (e.g. 1000 to show nanoseconds as microseconds).
+     * @param unit the number each value is divided by
+     * @return the count, mean, p50, p99, p99.9, and max
+     */
+    public String summary(double unit) {
+        return String.format("count=%d mean=%.1f p50=%.1f p99=%.1f p999=%.1f max=%.1f", this.count(),
+                this.mean() / unit, this.percentile(0.5) / unit, this.percentile(0.99) / unit,
+                this.percentile(0.999) / unit, this.max() / unit);
+    }
+
+    public static void main(String[] args) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        System.out.println(histogram.summary(1));
+        System.out.println("Expected p50=50000 p99=99000 p999=99900 (within 6%)");
+    }
+}
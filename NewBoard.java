@@ -1,13 +1,20 @@
 public class NewBoard {
+    private static final int STEPS_PER_SECOND = 100;
+
     public static void main(String[] args) throws InterruptedException {
         Sudoku game = new Sudoku(23);
-        game.solve(0);
+        LandscapeDisplay display = game.getDisplay();
+        display.play(game.record(), STEPS_PER_SECOND);
+        Board shown = display.getBoard();
         while(true) {
-            game.getDisplay().resetButtonClick();
-            if(game.getBoard().getFinished()) {
-                game.resetGame(game.getDisplay().getBoard());
-                game.solve(10);
+            display.resetButtonClick();
+            if(display.getBoard() != shown) {
+                // the reset button made a new board, so record and replay its search
+                game.resetGame(display.getBoard());
+                display.play(game.record(), STEPS_PER_SECOND);
+                shown = display.getBoard();
             }
+            Thread.sleep(50);
         }
     }
 }
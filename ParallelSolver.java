@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves one board on several cores. The top splitDepth levels of the search
+ * tree are cut into fork-join tasks, one per value of the most constrained
+ * cell, each with its own copy of the board; below that a task runs a
+ * BacktrackSolver on its copy. Idle workers of the ForkJoinPool steal
+ * waiting subtrees, and the first task to find a solution cancels a shared
+ * CancellationToken that makes every other search give up.
+ */
+public class ParallelSolver implements SudokuSolver {
+    private static final int FULL = -1; // pickCell(): no empty cell is left
+    private static final int DEAD_END = -2; // pickCell(): some empty cell has no valid value
+
+    // Fields for the pool and the solvers its workers reuse
+    private ForkJoinPool pool;
+    private int splitDepth;
+    private ThreadLocal<BacktrackSolver> solvers;
+
+    /**
+     * Constructor for ParallelSolver
+     * Initializes the solver on the common ForkJoinPool.
+     */
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for ParallelSolver
+     * Initializes the solver on a given pool.
+     * @param pool the pool the subtrees run on
+     */
+    public ParallelSolver(ForkJoinPool pool) {
+        this.pool = pool;
+        this.splitDepth = 6;
+        this.solvers = ThreadLocal.withInitial(BacktrackSolver::new);
+    }
+
+    /**
+     * Sets how many guesses deep the search tree is split into tasks. Deeper
+     * splits balance the work better but make more board copies.
+     * @param splitDepth the number of levels to split, 0 for none
+     */
+    public void setSplitDepth(int splitDepth) {
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Solves the board in place. If there is no solution, the board is left
+     * with only its original values. The stats add up the work of every
+     * task; the CPU time is summed over all the workers.
+     * @param board the board to be solved
+     * @return SOLVED if solved, UNSOLVABLE otherwise
+     */
+    public SolveResult solve(Board board) {
+        long startTime = System.nanoTime();
+        Search search = new Search();
+        if(BacktrackSolver.hasValidValues(board)) {
+            this.pool.invoke(new Subtree(search, board.copy(), 0));
+        }
+        Board solution = search.solution.get();
+        if(solution != null) {
+            board.copyFrom(solution);
+        }
+        SolveStats stats = new SolveStats(search.nodes.sum(), search.backtracks.sum(), search.propagations.sum(),
+                search.maxDepth.get(), System.nanoTime() - startTime, search.cpuNanos.sum());
+        return new SolveResult(solution != null ? SolveResult.Status.SOLVED : SolveResult.Status.UNSOLVABLE, board, stats);
+    }
+
+    /**
+     * Returns the empty cell with the fewest valid values.
+     * @param board the board to be searched
+     * @return the index (row * size + col) of the cell, FULL, or DEAD_END
+     */
+    private static int pickCell(Board board) {
+        int best = FULL;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
+                if(board.value(i, j) == 0) {
+                    int count = board.candidateCount(i, j);
+                    if(count == 0) {
+                        return DEAD_END;
+                    }
+                    if(count < fewest) {
+                        fewest = count;
+                        best = i * board.getCols() + j;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * What the tasks of one solve share: the first solution, the flag that
+     * stops the rest, and the counters they add to.
+     */
+    private static class Search {
+        private AtomicReference<Board> solution = new AtomicReference<>();
+        private CancellationToken done = new CancellationToken();
+        private SolveBudget budget = new SolveBudget(0, 0, this.done);
+        private LongAdder nodes = new LongAdder();
+        private LongAdder backtracks = new LongAdder();
+        private LongAdder propagations = new LongAdder();
+        private LongAdder cpuNanos = new LongAdder();
+        private AtomicInteger maxDepth = new AtomicInteger();
+
+        /**
+         * Keeps a solution if it is the first one, and stops the other tasks.
+         * @param board the solved board
+         */
+        private void found(Board board) {
+            if(this.solution.compareAndSet(null, board)) {
+                this.done.cancel();
+            }
+        }
+
+        /**
+         * Adds the work of a finished BacktrackSolver run.
+         * @param stats the stats of the run
+         * @param depth the guesses made above the run
+         */
+        private void add(SolveStats stats, int depth) {
+            this.nodes.add(stats.getNodes());
+            this.backtracks.add(stats.getBacktracks());
+            this.propagations.add(stats.getPropagations());
+            if(stats.getCpuNanos() > 0) {
+                this.cpuNanos.add(stats.getCpuNanos());
+            }
+            this.maxDepth.accumulateAndGet(depth + stats.getMaxDepth(), Math::max);
+        }
+    }
+
+    /**
+     * Searches the subtree below one board. Above splitDepth it fills in the
+     * cells with one valid value, then forks a task for each value of the
+     * most constrained cell; at splitDepth it searches the rest itself.
+     */
+    private class Subtree extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private Search search;
+        private Board board;
+        private int depth;
+
+        /**
+         * Constructor for Subtree
+         * @param search the solve this task belongs to
+         * @param board the task's own copy of the board
+         * @param depth the number of guesses made above this task
+         */
+        private Subtree(Search search, Board board, int depth) {
+            this.search = search;
+            this.board = board;
+            this.depth = depth;
+        }
+
+        protected void compute() {
+            if(this.search.done.isCancelled()) {
+                return;
+            }
+            if(this.depth >= ParallelSolver.this.splitDepth) {
+                this.searchHere();
+                return;
+            }
+
+            // fill in naked singles so every split is a real choice
+            int cell = pickCell(this.board);
+            int width = this.board.getCols();
+            while(cell >= 0 && this.board.candidateCount(cell / width, cell % width) == 1) {
+                int row = cell / width;
+                int col = cell % width;
+                this.board.set(row, col, Integer.numberOfTrailingZeros(this.board.candidates(row, col)), true);
+                this.search.propagations.increment();
+                cell = pickCell(this.board);
+            }
+            if(cell == FULL) {
+                this.search.found(this.board);
+                return;
+            }
+            if(cell == DEAD_END) {
+                this.search.backtracks.increment();
+                return;
+            }
+
+            int row = cell / width;
+            int col = cell % width;
+            List<Subtree> children = new ArrayList<>();
+            for (int allowed = this.board.candidates(row, col); allowed != 0; allowed &= allowed - 1) {
+                Board child = this.board.copy();
+                child.set(row, col, Integer.numberOfTrailingZeros(allowed), true);
+                children.add(new Subtree(this.search, child, this.depth + 1));
+            }
+            this.search.nodes.add(children.size());
+            invokeAll(children);
+        }
+
+        /**
+         * Runs this worker's BacktrackSolver on the task's board.
+         */
+        private void searchHere() {
+            BacktrackSolver solver = ParallelSolver.this.solvers.get();
+            SolveResult result = solver.solve(this.board, this.search.budget);
+            this.search.add(result.getStats(), this.depth);
+            if(result.isSolved()) {
+                this.search.found(this.board);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Board board = new Board(args.length > 0 ? args[0] : "board1.txt");
+        System.out.println("Unsolved:");
+        System.out.println(board);
+
+        SolveResult result = new ParallelSolver().solve(board);
+        System.out.println(result);
+        System.out.println(board);
+        System.out.println("Valid solution: " + board.validSolution());
+    }
+}
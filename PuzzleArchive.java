@@ -0,0 +1,181 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of boards stored as fixed-size BoardCodec records after a 32-byte
+ * header, so any board can be read by its number with a single positional
+ * read and no text parsing. An archive is opened for reading with the
+ * constructor and built with PuzzleArchive.Writer. One open archive should
+ * not be read from several threads at once; open one per thread instead.
+ */
+public class PuzzleArchive implements Closeable {
+    private static final int MAGIC = 0x53444b41; // "SDKA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    // Fields for the open archive
+    private FileChannel channel;
+    private long count;
+    private ByteBuffer record;
+
+    /**
+     * Constructor for PuzzleArchive
+     * Opens an archive for reading.
+     * @param filename the archive to be opened
+     * @throws IOException if the file cannot be read or is not an archive
+     */
+    public PuzzleArchive(String filename) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        this.channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION
+                || header.getInt() != BoardCodec.RECORD_SIZE) {
+            this.channel.close();
+            throw new IOException("PuzzleArchive():: " + filename + " is not a puzzle archive");
+        }
+        this.count = header.getLong();
+        this.record = ByteBuffer.allocate(BoardCodec.RECORD_SIZE);
+    }
+
+    /**
+     * Returns the number of boards in the archive.
+     * @return the number of boards
+     */
+    public long size() {
+        return this.count;
+    }
+
+    /**
+     * Reads a board by its number.
+     * @param index the number of the board (starting at 0)
+     * @param board the board to be read into
+     * @throws IOException if the record cannot be read
+     */
+    public void read(long index, Board board) throws IOException {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException("PuzzleArchive.read():: no board " + index);
+        }
+        long offset = HEADER_SIZE + index * BoardCodec.RECORD_SIZE;
+        this.record.clear();
+        while (this.record.hasRemaining()) {
+            if (this.channel.read(this.record, offset + this.record.position()) < 0) {
+                throw new EOFException("PuzzleArchive.read():: archive is truncated");
+            }
+        }
+        if (!BoardCodec.decode(this.record.array(), 0, board)) {
+            throw new IOException("PuzzleArchive.read():: board " + index + " is corrupt");
+        }
+    }
+
+    /**
+     * Closes the archive.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Writes boards to a new archive. The header's board count is filled in
+     * when the writer is closed.
+     */
+    public static class Writer implements Closeable {
+        // Fields for the file being written
+        private FileChannel channel;
+        private OutputStream out;
+        private byte[] record;
+        private long count;
+
+        /**
+         * Constructor for Writer
+         * Creates (or replaces) an archive file.
+         * @param filename the archive to be written
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(String filename) throws IOException {
+            this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.channel.position(HEADER_SIZE);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(this.channel), 1 << 16);
+            this.record = new byte[BoardCodec.RECORD_SIZE];
+            this.count = 0;
+        }
+
+        /**
+         * Adds a board to the end of the archive.
+         * @param board the board to be added
+         * @throws IOException if the record cannot be written
+         */
+        public void append(Board board) throws IOException {
+            BoardCodec.encode(board, this.record, 0);
+            this.out.write(this.record);
+            this.count++;
+        }
+
+        /**
+         * Returns the number of boards written so far.
+         * @return the number of boards written
+         */
+        public long size() {
+            return this.count;
+        }
+
+        /**
+         * Writes the header and closes the archive.
+         * @throws IOException if the file cannot be written
+         */
+        public void close() throws IOException {
+            this.out.flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(BoardCodec.RECORD_SIZE).putLong(this.count);
+            header.clear();
+            this.channel.write(header, 0);
+            this.out.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("pack")) {
+            // one 81-character puzzle per line in, archive out
+            Board board = new Board();
+            try (PuzzleReader reader = new PuzzleReader(args[1]);
+                    Writer writer = new Writer(args[2])) {
+                long skipped = 0;
+                while (reader.next(board)) {
+                    // a bad line reads as an empty board, which would pack as a real (solvable) puzzle
+                    if (reader.wasValid()) {
+                        writer.append(board);
+                    } else {
+                        skipped++;
+                    }
+                }
+                System.out.println("Packed " + writer.size() + " boards, skipped " + skipped + " invalid lines");
+            }
+        } else if (args.length == 3 && args[0].equals("unpack")) {
+            Board board = new Board();
+            try (PuzzleArchive archive = new PuzzleArchive(args[1]);
+                    BufferedWriter out = new BufferedWriter(new FileWriter(args[2]))) {
+                for (long i = 0; i < archive.size(); i++) {
+                    archive.read(i, board);
+                    out.write(board.toLine());
+                    out.write('\n');
+                }
+            }
+        } else if (args.length == 3 && args[0].equals("get")) {
+            Board board = new Board();
+            try (PuzzleArchive archive = new PuzzleArchive(args[1])) {
+                archive.read(Long.parseLong(args[2]), board);
+            }
+            System.out.println(board);
+        } else {
+            System.out.println("Usage: java PuzzleArchive pack <puzzles> <archive>");
+            System.out.println("       java PuzzleArchive unpack <archive> <puzzles>");
+            System.out.println("       java PuzzleArchive get <archive> <number>");
+        }
+    }
+}
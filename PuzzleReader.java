@@ -0,0 +1,203 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams puzzles from a file with one 81-character puzzle per line ('.' or
+ * '0' for empty cells; larger boards take size * size characters, with A, B,
+ * C, ... for 10 and up). The file is memory-mapped a window at a time and the
+ * digits are decoded straight into a reused Board, so no Strings or arrays
+ * are made per puzzle. A reader can cover only part of a file, and split()
+ * cuts a file into line-aligned ranges for parallel readers.
+ */
+public class PuzzleReader implements Closeable {
+    private static final long WINDOW = 64L << 20; // bytes mapped at a time
+    private static final int MAX_LINE = 4096; // longer lines are skipped
+
+    // Fields for the mapped range
+    private FileChannel channel;
+    private long end;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long position;
+    private boolean valid;
+
+    /**
+     * Constructor for PuzzleReader
+     * Opens the whole file.
+     * @param filename the file to be read
+     * @throws IOException if the file cannot be opened
+     */
+    public PuzzleReader(String filename) throws IOException {
+        this(filename, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for PuzzleReader
+     * Opens the part of the file from start (which must be the start of a
+     * line) up to end.
+     * @param filename the file to be read
+     * @param start the first byte to be read
+     * @param end the byte after the last one to be read
+     * @throws IOException if the file cannot be opened
+     */
+    public PuzzleReader(String filename, long start, long end) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.end = Math.min(end, this.channel.size());
+        this.position = start;
+        this.buffer = null;
+    }
+
+    /**
+     * Returns the offset in the file of the next line.
+     * @return the offset of the next line
+     */
+    public long position() {
+        return this.position;
+    }
+
+    /**
+     * Returns if the last line read was a valid puzzle.
+     * @return true if the last line was a valid puzzle
+     */
+    public boolean wasValid() {
+        return this.valid;
+    }
+
+    /**
+     * Reads the next non-empty line into the board. A line that is not a
+     * valid puzzle is still consumed, leaving the board cleared and
+     * wasValid() false.
+     * @param board the board to be read into
+     * @return false if there are no lines left, otherwise true
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next(Board board) throws IOException {
+        // skip blank lines
+        while (this.position < this.end && this.isLineBreak(this.byteAt(this.position))) {
+            this.position++;
+        }
+        if (this.position >= this.end) {
+            return false;
+        }
+
+        board.clear();
+        this.valid = true;
+        int width = board.getCols();
+        int cells = 0;
+        int length = 0;
+        while (this.position < this.end) {
+            byte ch = this.byteAt(this.position);
+            if (this.isLineBreak(ch)) {
+                break;
+            }
+            if (cells < width * width) {
+                int value = Geometry.digitValue(ch);
+                if (value > 0 && value <= width) {
+                    board.set(cells / width, cells % width, value, true);
+                } else if (value != 0) {
+                    this.valid = false;
+                }
+                cells++;
+            }
+            this.position++;
+            length++;
+            if (length > MAX_LINE) {
+                this.valid = false;
+            }
+        }
+        if (cells < width * width || length > width * width) {
+            this.valid = false;
+        }
+        if (!this.valid) {
+            board.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the byte at an offset, mapping a new window when needed.
+     * @param offset the offset in the file
+     * @return the byte at the offset
+     * @throws IOException if the file cannot be mapped
+     */
+    private byte byteAt(long offset) throws IOException {
+        if (this.buffer == null || offset < this.bufferStart || offset >= this.bufferStart + this.buffer.limit()) {
+            long size = Math.min(WINDOW, this.end - offset);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            this.bufferStart = offset;
+        }
+        return this.buffer.get((int) (offset - this.bufferStart));
+    }
+
+    /**
+     * Returns if a byte ends a line.
+     * @param ch the byte to be checked
+     * @return true for '\n' and '\r'
+     */
+    private boolean isLineBreak(byte ch) {
+        return ch == '\n' || ch == '\r';
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        this.buffer = null;
+        this.channel.close();
+    }
+
+    /**
+     * Cuts a file into ranges that each start at the beginning of a line.
+     * Range i runs from bounds[i] up to bounds[i + 1].
+     * @param filename the file to be split
+     * @param parts the number of ranges wanted
+     * @return the parts + 1 range boundaries
+     * @throws IOException if the file cannot be read
+     */
+    public static long[] split(String filename, int parts) throws IOException {
+        long[] bounds = new long[parts + 1];
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer one = ByteBuffer.allocate(1);
+            bounds[parts] = size;
+            for (int i = 1; i < parts; i++) {
+                // move forward from the even split to just past the next line break
+                long offset = Math.max(size / parts * i, bounds[i - 1]);
+                while (offset < size) {
+                    one.clear();
+                    channel.read(one, offset);
+                    offset++;
+                    if (one.get(0) == '\n') {
+                        break;
+                    }
+                }
+                bounds[i] = Math.min(offset, size);
+            }
+        }
+        return bounds;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Board board = new Board();
+        long count = 0;
+        long valid = 0;
+        long startTime = System.nanoTime();
+        try (PuzzleReader reader = new PuzzleReader(args[0])) {
+            while (reader.next(board)) {
+                count++;
+                if (reader.wasValid()) {
+                    valid++;
+                }
+            }
+        }
+        long duration = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("Read " + count + " lines (" + valid + " valid puzzles) in " + duration + " milliseconds");
+        System.out.println(board);
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe store of solved puzzles keyed by their
+ * CanonicalForm, so a puzzle that is a repeat of an earlier one (or the
+ * same puzzle after a symmetry transform) is answered by mapping the stored
+ * solution back instead of searching. Puzzles with no solution are stored
+ * too. When full, the least recently used (LRU) or least frequently used
+ * (LFU) entry is dropped.
+ */
+public class SolutionCache {
+    /**
+     * Which entry is dropped when the cache is full.
+     */
+    public enum Eviction {
+        LRU,
+        LFU
+    }
+
+    private static final byte[] UNSOLVABLE = new byte[0]; // stored for puzzles with no solution
+
+    // Fields for the entries
+    private int capacity;
+    private Eviction eviction;
+    private LinkedHashMap<String, byte[]> recent; // LRU: entries in access order
+    private HashMap<String, byte[]> solutions; // LFU: every entry
+    private HashMap<String, Integer> uses; // LFU: how often each entry was used
+    private HashMap<Integer, LinkedHashSet<String>> byUses; // LFU: the keys with each use count, oldest first
+    private int fewestUses;
+    // Fields for the counters
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor for SolutionCache
+     * @param capacity the most puzzles kept
+     * @param eviction which entry to drop when full
+     */
+    public SolutionCache(int capacity, Eviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("SolutionCache():: capacity must be positive, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.eviction = eviction;
+        if (eviction == Eviction.LRU) {
+            this.recent = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    if (this.size() > SolutionCache.this.capacity) {
+                        SolutionCache.this.evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        } else {
+            this.solutions = new HashMap<String, byte[]>();
+            this.uses = new HashMap<String, Integer>();
+            this.byUses = new HashMap<Integer, LinkedHashSet<String>>();
+        }
+    }
+
+    /**
+     * Solves a board from the cache if it holds the board's canonical form,
+     * otherwise with the solver, storing the answer. The board is solved in
+     * place like SudokuSolver.solve().
+     * @param board the board to be solved
+     * @param solver the solver used on a miss
+     * @return the result; a hit reports no search work
+     */
+    public SolveResult solve(Board board, SudokuSolver solver) {
+        long startTime = System.nanoTime();
+        CanonicalForm form = CanonicalForm.of(board);
+        byte[] values = this.get(form.getKey());
+        if (values != null) {
+            SolveResult.Status status = SolveResult.Status.UNSOLVABLE;
+            if (values != UNSOLVABLE) {
+                form.fromCanonical(values, board);
+                status = SolveResult.Status.SOLVED;
+            }
+            long wallNanos = System.nanoTime() - startTime;
+            return new SolveResult(status, board, new SolveStats(0, 0, 0, 0, wallNanos, -1));
+        }
+
+        SolveResult result = solver.solve(board);
+        if (result.getStatus() == SolveResult.Status.SOLVED) {
+            this.put(form.getKey(), form.toCanonical(board));
+        } else if (result.getStatus() == SolveResult.Status.UNSOLVABLE) {
+            this.put(form.getKey(), UNSOLVABLE);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the stored canonical solution for a key, counting a hit or miss.
+     * @param key the canonical key
+     * @return the canonical solution, UNSOLVABLE, or null if not stored
+     */
+    private synchronized byte[] get(String key) {
+        byte[] values;
+        if (this.eviction == Eviction.LRU) {
+            values = this.recent.get(key);
+        } else {
+            values = this.solutions.get(key);
+            if (values != null) {
+                this.touch(key);
+            }
+        }
+        if (values != null) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return values;
+    }
+
+    /**
+     * Stores a canonical solution, dropping an entry if the cache is full.
+     * @param key the canonical key
+     * @param values the canonical solution, or UNSOLVABLE
+     */
+    private synchronized void put(String key, byte[] values) {
+        if (this.eviction == Eviction.LRU) {
+            this.recent.put(key, values);
+            return;
+        }
+        if (this.solutions.containsKey(key)) {
+            this.solutions.put(key, values);
+            this.touch(key);
+            return;
+        }
+        if (this.solutions.size() >= this.capacity) {
+            LinkedHashSet<String> rarest = this.byUses.get(this.fewestUses);
+            String victim = rarest.iterator().next();
+            rarest.remove(victim);
+            if (rarest.isEmpty()) {
+                this.byUses.remove(this.fewestUses);
+            }
+            this.solutions.remove(victim);
+            this.uses.remove(victim);
+            this.evictions++;
+        }
+        this.solutions.put(key, values);
+        this.uses.put(key, 1);
+        this.byUses.computeIfAbsent(1, k -> new LinkedHashSet<String>()).add(key);
+        this.fewestUses = 1;
+    }
+
+    /**
+     * Moves an LFU entry up to the next use count.
+     * @param key the canonical key
+     */
+    private void touch(String key) {
+        int count = this.uses.get(key);
+        LinkedHashSet<String> keys = this.byUses.get(count);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            this.byUses.remove(count);
+            if (this.fewestUses == count) {
+                this.fewestUses = count + 1;
+            }
+        }
+        this.uses.put(key, count + 1);
+        this.byUses.computeIfAbsent(count + 1, k -> new LinkedHashSet<String>()).add(key);
+    }
+
+    /**
+     * Returns the number of puzzles stored.
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return this.eviction == Eviction.LRU ? this.recent.size() : this.solutions.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to search.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries dropped to make room.
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the hit, miss, and eviction counts.
+     * @return the counters as a string
+     */
+    public synchronized String toString() {
+        return "SolutionCache: " + this.size() + "/" + this.capacity + " " + this.eviction + " hits=" + this.hits
+                + " misses=" + this.misses + " evictions=" + this.evictions;
+    }
+}
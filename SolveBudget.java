@@ -0,0 +1,58 @@
+/**
+ * Limits on one solve: a deadline, a most number of search nodes, and a
+ * CancellationToken. A search that runs out of time or nodes ends with
+ * TIMED_OUT, and one that is cancelled (or whose thread is interrupted) ends
+ * with CANCELLED. The deadline clock starts when the budget is made.
+ */
+public class SolveBudget {
+    // Fields for the limits
+    private boolean hasDeadline;
+    private long deadline; // in System.nanoTime() terms
+    private long maxNodes;
+    private CancellationToken token;
+
+    /**
+     * Constructor for SolveBudget
+     * @param timeoutMillis how long the solve may take, or 0 for no limit
+     * @param maxNodes the most search nodes the solve may use, or 0 for no limit
+     * @param token the token that cancels the solve, or null for none
+     */
+    public SolveBudget(long timeoutMillis, long maxNodes, CancellationToken token) {
+        this.hasDeadline = timeoutMillis > 0;
+        this.deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.token = token;
+    }
+
+    /**
+     * Returns if the deadline has passed.
+     * @return true if out of time, otherwise false
+     */
+    public boolean isExpired() {
+        return this.hasDeadline && System.nanoTime() - this.deadline >= 0;
+    }
+
+    /**
+     * Returns if the token was cancelled or the current thread interrupted.
+     * @return true if the solve should stop, otherwise false
+     */
+    public boolean isCancelled() {
+        return (this.token != null && this.token.isCancelled()) || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Returns the most search nodes the solve may use.
+     * @return the node limit, Long.MAX_VALUE if there is none
+     */
+    public long getMaxNodes() {
+        return this.maxNodes;
+    }
+
+    /**
+     * Returns the token that cancels the solve.
+     * @return the token, or null if there is none
+     */
+    public CancellationToken getToken() {
+        return this.token;
+    }
+}
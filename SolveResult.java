@@ -0,0 +1,77 @@
+public class SolveResult {
+    /**
+     * The ways a solve can end.
+     */
+    public enum Status {
+        SOLVED,
+        UNSOLVABLE,
+        TIMED_OUT, // ran out of time or search nodes
+        CANCELLED // its token was cancelled or its thread interrupted
+    }
+
+    // Fields for SolveResult
+    private Status status;
+    private Board board;
+    private SolveStats stats;
+
+    /**
+     * Constructor for SolveResult
+     * @param status how the solve ended
+     * @param board the board that was solved
+     */
+    public SolveResult(Status status, Board board) {
+        this(status, board, null);
+    }
+
+    /**
+     * Constructor for SolveResult
+     * @param status how the solve ended
+     * @param board the board that was solved
+     * @param stats the work the solve took, or null if not measured
+     */
+    public SolveResult(Status status, Board board, SolveStats stats) {
+        this.status = status;
+        this.board = board;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns how the solve ended.
+     * @return how the solve ended
+     */
+    public Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Returns the board that was solved.
+     * @return the board that was solved
+     */
+    public Board getBoard() {
+        return this.board;
+    }
+
+    /**
+     * Returns the work the solve took.
+     * @return the solve's stats, or null if not measured
+     */
+    public SolveStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns if the board was solved.
+     * @return true if solved, otherwise false
+     */
+    public boolean isSolved() {
+        return this.status == Status.SOLVED;
+    }
+
+    /**
+     * Returns a string form of the result.
+     * @return a string form of the result
+     */
+    public String toString() {
+        return "Result: " + this.status + (this.stats == null ? "" : " (" + this.stats + ")");
+    }
+}
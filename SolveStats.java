@@ -0,0 +1,105 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * How much work one solve took: search nodes (values tried by a guess),
+ * backtracks, cells filled in by propagation, the deepest guess stack, and
+ * the wall-clock and CPU time spent.
+ */
+public class SolveStats {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    // Fields for the counters
+    private long nodes;
+    private long backtracks;
+    private long propagations;
+    private int maxDepth;
+    private long wallNanos;
+    private long cpuNanos;
+
+    /**
+     * Constructor for SolveStats
+     * @param nodes the number of search nodes
+     * @param backtracks the number of backtracks
+     * @param propagations the number of cells filled in by propagation
+     * @param maxDepth the deepest guess stack
+     * @param wallNanos the wall-clock time in nanoseconds
+     * @param cpuNanos the CPU time in nanoseconds, or -1 if unknown
+     */
+    public SolveStats(long nodes, long backtracks, long propagations, int maxDepth, long wallNanos, long cpuNanos) {
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.propagations = propagations;
+        this.maxDepth = maxDepth;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+    }
+
+    /**
+     * Returns the CPU time used by the current thread so far, for timing a
+     * solve.
+     * @return the thread's CPU time in nanoseconds, or -1 if unknown
+     */
+    public static long threadCpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Returns the number of search nodes (values tried by a guess).
+     * @return the number of search nodes
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the number of times a guess was undone.
+     * @return the number of backtracks
+     */
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    /**
+     * Returns the number of cells filled in by propagation.
+     * @return the number of propagated cells
+     */
+    public long getPropagations() {
+        return this.propagations;
+    }
+
+    /**
+     * Returns the most guesses that were on the stack at once.
+     * @return the deepest guess stack
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Returns the wall-clock time of the solve.
+     * @return the wall-clock time in nanoseconds
+     */
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    /**
+     * Returns the CPU time of the solve.
+     * @return the CPU time in nanoseconds, or -1 if unknown
+     */
+    public long getCpuNanos() {
+        return this.cpuNanos;
+    }
+
+    /**
+     * Returns a string form of the stats.
+     * @return a string form of the stats
+     */
+    public String toString() {
+        return "nodes=" + this.nodes + " backtracks=" + this.backtracks + " propagations=" + this.propagations
+                + " maxDepth=" + this.maxDepth + " wall=" + this.wallNanos / 1000 + "us"
+                + " cpu=" + (this.cpuNanos < 0 ? "n/a" : this.cpuNanos / 1000 + "us");
+    }
+}
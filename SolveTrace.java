@@ -0,0 +1,326 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded search: the starting board and every cell the solver changed,
+ * so the search can be shown later (at any speed, or from any step) without
+ * solving again. Traces are made with a TraceRecorder.
+ *
+ * Each step is one varint: the change from the previous step's cell
+ * (zigzag coded, so small moves either way stay small), the new value, and
+ * the kind of step, packed as ((delta * (size + 1) + value) << 2) | kind.
+ * Most steps take one or two bytes. A trace file is a 16-byte header (magic
+ * "SDKT", version, box size, solved flag, step count, and the length of the
+ * steps in bytes), the starting board as one line, and then the steps.
+ */
+public class SolveTrace {
+    public static final int ASSIGN = 0; // a guess
+    public static final int PROPAGATE = 1; // a deduced value
+    public static final int UNDO = 2; // a cell put back by a backtrack
+    private static final int MAGIC = 0x53444b54; // "SDKT"
+    private static final int VERSION = 1;
+    private static final int CHECKPOINT_STEPS = 1024; // steps between a Cursor's saved boards
+
+    // Fields for the trace
+    private Board start;
+    private byte[] steps;
+    private int length; // bytes of steps used
+    private int count; // number of steps
+    private boolean solved;
+
+    /**
+     * Constructor for SolveTrace
+     * @param start the board the search started from
+     * @param steps the encoded steps
+     * @param length the number of bytes of steps used
+     * @param count the number of steps
+     * @param solved whether the search ended with a solution
+     */
+    SolveTrace(Board start, byte[] steps, int length, int count, boolean solved) {
+        this.start = start;
+        this.steps = steps;
+        this.length = length;
+        this.count = count;
+        this.solved = solved;
+    }
+
+    /**
+     * Returns a copy of the board the search started from.
+     * @return the starting board
+     */
+    public Board getStart() {
+        return this.start.copy();
+    }
+
+    /**
+     * Returns the number of steps in the trace.
+     * @return the number of steps
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Returns the number of bytes the steps take.
+     * @return the encoded size of the steps
+     */
+    public int byteSize() {
+        return this.length;
+    }
+
+    /**
+     * Returns if the search ended with a solution.
+     * @return true if solved, otherwise false
+     */
+    public boolean isSolved() {
+        return this.solved;
+    }
+
+    /**
+     * Returns a cursor at the start of the trace.
+     * @return a new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Packs one step into its varint value.
+     * @param delta the change from the previous step's cell
+     * @param value the new value of the cell
+     * @param kind ASSIGN, PROPAGATE, or UNDO
+     * @param size the number of cells per row
+     * @return the packed step
+     */
+    static int pack(int delta, int value, int kind, int size) {
+        int zigzag = (delta << 1) ^ (delta >> 31);
+        return ((zigzag * (size + 1) + value) << 2) | kind;
+    }
+
+    /**
+     * Writes the trace.
+     * @param out where the trace is written
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeByte(this.start.getGeometry().getBoxSize());
+        data.writeByte(this.solved ? 1 : 0);
+        data.writeByte(0);
+        data.writeInt(this.count);
+        data.writeInt(this.length);
+        data.writeBytes(this.start.toLine());
+        data.write(this.steps, 0, this.length);
+        data.flush();
+    }
+
+    /**
+     * Writes the trace to a file.
+     * @param filename the file to be written
+     * @throws IOException if writing fails
+     */
+    public void save(String filename) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+            this.write(out);
+        }
+    }
+
+    /**
+     * Reads a trace.
+     * @param in where the trace is read from
+     * @return the trace
+     * @throws IOException if reading fails or the data is not a trace
+     */
+    public static SolveTrace read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+            throw new IOException("SolveTrace.read():: not a solve trace");
+        }
+        int boxSize = data.readByte();
+        boolean solved = data.readByte() != 0;
+        data.readByte();
+        int count = data.readInt();
+        int length = data.readInt();
+        if (boxSize < 2 || boxSize > Geometry.MAX_BOX_SIZE || count < 0 || length < 0) {
+            throw new IOException("SolveTrace.read():: corrupt header");
+        }
+        Board start = Board.withBoxSize(boxSize);
+        byte[] line = new byte[start.getCols() * start.getCols()];
+        data.readFully(line);
+        if (!start.readLine(new String(line, "US-ASCII"))) {
+            throw new IOException("SolveTrace.read():: corrupt starting board");
+        }
+        byte[] steps = new byte[length];
+        data.readFully(steps);
+        return new SolveTrace(start, steps, length, count, solved);
+    }
+
+    /**
+     * Reads a trace from a file.
+     * @param filename the file to be read
+     * @return the trace
+     * @throws IOException if reading fails or the file is not a trace
+     */
+    public static SolveTrace load(String filename) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * A position in a trace, with the board as it was after that many
+     * steps. A cursor saves the board every 1024 steps it passes, so seeking
+     * back only replays from the nearest saved board.
+     */
+    public class Cursor {
+        // Fields for the position
+        private Board board;
+        private int step;
+        private int offset; // byte offset of the next step
+        private int cell; // cell of the previous step
+        private int lastKind = -1;
+        // Fields for the saved boards, one per CHECKPOINT_STEPS steps
+        private List<Board> savedBoards = new ArrayList<Board>();
+        private List<int[]> savedPositions = new ArrayList<int[]>(); // offset and cell of each
+
+        /**
+         * Constructor for Cursor
+         * Initializes a cursor at the start of the trace.
+         */
+        private Cursor() {
+            this.board = start.copy();
+            this.savedBoards.add(start.copy());
+            this.savedPositions.add(new int[] {0, 0});
+        }
+
+        /**
+         * Returns the board at the cursor. The same board is updated as the
+         * cursor moves.
+         * @return the board after getStep() steps
+         */
+        public Board getBoard() {
+            return this.board;
+        }
+
+        /**
+         * Returns the number of steps applied.
+         * @return the step the cursor is at
+         */
+        public int getStep() {
+            return this.step;
+        }
+
+        /**
+         * Returns the kind of the last step applied.
+         * @return ASSIGN, PROPAGATE, UNDO, or -1 at the start
+         */
+        public int getLastKind() {
+            return this.lastKind;
+        }
+
+        /**
+         * Returns if every step has been applied.
+         * @return true at the end of the trace
+         */
+        public boolean atEnd() {
+            return this.step >= count;
+        }
+
+        /**
+         * Applies the next step to the board.
+         * @return false if there were no steps left
+         */
+        public boolean next() {
+            if (this.atEnd()) {
+                return false;
+            }
+            int packed = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = steps[this.offset++];
+                packed |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            int size = this.board.getCols();
+            int kind = packed & 3;
+            int rest = packed >>> 2;
+            int value = rest % (size + 1);
+            int zigzag = rest / (size + 1);
+            this.cell += (zigzag >>> 1) ^ -(zigzag & 1);
+            this.board.set(this.cell / size, this.cell % size, value, kind != UNDO || value != 0);
+            this.lastKind = kind;
+            this.step++;
+
+            if (this.step % CHECKPOINT_STEPS == 0 && this.step / CHECKPOINT_STEPS == this.savedBoards.size()) {
+                this.savedBoards.add(this.board.copy());
+                this.savedPositions.add(new int[] {this.offset, this.cell});
+            }
+            return true;
+        }
+
+        /**
+         * Moves the cursor to a step, backwards or forwards.
+         * @param target the number of steps to have applied
+         */
+        public void seek(int target) {
+            target = Math.max(0, Math.min(target, count));
+            if (target < this.step || target - this.step > CHECKPOINT_STEPS) {
+                int saved = Math.min(target / CHECKPOINT_STEPS, this.savedBoards.size() - 1);
+                if (saved * CHECKPOINT_STEPS > this.step || target < this.step) {
+                    this.board.copyFrom(this.savedBoards.get(saved));
+                    this.offset = this.savedPositions.get(saved)[0];
+                    this.cell = this.savedPositions.get(saved)[1];
+                    this.step = saved * CHECKPOINT_STEPS;
+                    this.lastKind = -1;
+                }
+            }
+            while (this.step < target) {
+                this.next();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SolveTrace record <puzzles> <dir>");
+            System.out.println("       java SolveTrace info <trace>");
+            System.out.println("       java SolveTrace play <trace> [stepsPerSecond]");
+            return;
+        }
+        if (args[0].equals("record") && args.length > 2) {
+            // solve every puzzle once at full speed and keep only the traces
+            BacktrackSolver solver = new BacktrackSolver();
+            TraceRecorder recorder = new TraceRecorder();
+            solver.setListener(recorder);
+            Board board = new Board();
+            long bytes = 0;
+            int n = 0;
+            try (BufferedReader in = new BufferedReader(new FileReader(args[1]))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (board.readLine(line)) {
+                        solver.solve(board);
+                        SolveTrace trace = recorder.getTrace();
+                        trace.save(new File(args[2], "trace" + n + ".sdt").getPath());
+                        bytes += trace.byteSize();
+                        n++;
+                    }
+                }
+            }
+            System.out.println("Recorded " + n + " traces, " + (n > 0 ? bytes / n : 0) + " bytes of steps each on average");
+        } else if (args[0].equals("info")) {
+            SolveTrace trace = load(args[1]);
+            System.out.println(trace.getStart());
+            System.out.println(trace.size() + " steps in " + trace.byteSize() + " bytes, solved: " + trace.isSolved());
+        } else if (args[0].equals("play")) {
+            SolveTrace trace = load(args[1]);
+            LandscapeDisplay display = new LandscapeDisplay(trace.getStart());
+            display.play(trace, args.length > 2 ? Integer.parseInt(args[2]) : 100);
+        }
+    }
+}
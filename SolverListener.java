@@ -0,0 +1,51 @@
+/**
+ * Observes a solver while it works, e.g. to animate the search on a display.
+ * The solver reports every cell it changes, so a listener can follow the
+ * search on its own copy of the board instead of reading the solver's board
+ * from another thread. Every method does nothing by default, and a solver
+ * with no listener skips the calls entirely.
+ */
+public interface SolverListener {
+    /**
+     * Called before the search starts, on the solver's thread.
+     * @param board the board about to be searched
+     */
+    default void onStart(Board board) {
+    }
+
+    /**
+     * Called when the search guesses a value for a cell (or tries the next
+     * value after backtracking).
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param value the value guessed
+     */
+    default void onAssign(int row, int col, int value) {
+    }
+
+    /**
+     * Called when propagation fills in a cell that has only one possible
+     * value.
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param value the value deduced
+     */
+    default void onPropagate(int row, int col, int value) {
+    }
+
+    /**
+     * Called when a backtrack puts a cell back to its earlier value.
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param value the value restored, 0 if the cell is empty again
+     */
+    default void onUndo(int row, int col, int value) {
+    }
+
+    /**
+     * Called after the search ends, on the solver's thread.
+     * @param board the board as the search left it
+     */
+    default void onFinish(Board board) {
+    }
+}
@@ -0,0 +1,209 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects the stats of many solves: how many were solved, latency and node
+ * histograms, total backtracks and propagations, and the few slowest
+ * puzzles. It can be shared by worker threads, registered as a JMX MBean,
+ * and printed as plain text with dump().
+ */
+public class SolverMetrics implements SolverMetricsMBean {
+    private static final int SLOWEST = 10;
+
+    // Fields for the totals and histograms
+    private AtomicLong solved;
+    private AtomicLong unsolvable;
+    private AtomicLong stopped;
+    private AtomicLong backtracks;
+    private AtomicLong propagations;
+    private LatencyHistogram wallNanos;
+    private LatencyHistogram nodes;
+    // Fields for the slowest puzzles, sorted slowest first
+    private long[] slowNanos;
+    private String[] slowPuzzles;
+    private volatile long slowThreshold;
+
+    /**
+     * Constructor for SolverMetrics
+     * Initializes empty metrics.
+     */
+    public SolverMetrics() {
+        this.reset();
+    }
+
+    /**
+     * Clears every count, histogram, and slow puzzle.
+     */
+    public synchronized void reset() {
+        this.solved = new AtomicLong();
+        this.unsolvable = new AtomicLong();
+        this.stopped = new AtomicLong();
+        this.backtracks = new AtomicLong();
+        this.propagations = new AtomicLong();
+        this.wallNanos = new LatencyHistogram();
+        this.nodes = new LatencyHistogram();
+        this.slowNanos = new long[SLOWEST];
+        this.slowPuzzles = new String[SLOWEST];
+        this.slowThreshold = 0;
+    }
+
+    /**
+     * Adds one solve to the metrics.
+     * @param result the result of the solve
+     * @param puzzle the puzzle before it was solved, kept if it is one of
+     *               the slowest; may be null
+     */
+    public void record(SolveResult result, Board puzzle) {
+        if (result.isSolved()) {
+            this.solved.incrementAndGet();
+        } else if (result.getStatus() == SolveResult.Status.UNSOLVABLE) {
+            this.unsolvable.incrementAndGet();
+        } else {
+            this.stopped.incrementAndGet();
+        }
+        SolveStats stats = result.getStats();
+        if (stats == null) {
+            return;
+        }
+        this.wallNanos.record(stats.getWallNanos());
+        this.nodes.record(stats.getNodes());
+        this.backtracks.addAndGet(stats.getBacktracks());
+        this.propagations.addAndGet(stats.getPropagations());
+        if (puzzle != null && stats.getWallNanos() > this.slowThreshold) {
+            this.recordSlow(stats.getWallNanos(), puzzle.toLine());
+        }
+    }
+
+    /**
+     * Keeps a puzzle in the slowest list if it is slow enough.
+     * @param nanos the puzzle's solve time
+     * @param line the puzzle
+     */
+    private synchronized void recordSlow(long nanos, String line) {
+        int i = SLOWEST - 1;
+        if (nanos <= this.slowNanos[i]) {
+            return;
+        }
+        // shift faster entries down to make room
+        while (i > 0 && this.slowNanos[i - 1] < nanos) {
+            this.slowNanos[i] = this.slowNanos[i - 1];
+            this.slowPuzzles[i] = this.slowPuzzles[i - 1];
+            i--;
+        }
+        this.slowNanos[i] = nanos;
+        this.slowPuzzles[i] = line;
+        this.slowThreshold = this.slowNanos[SLOWEST - 1];
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * @param name the name to register under, e.g. "sudoku:type=SolverMetrics"
+     * @return true if registered, otherwise false
+     */
+    public boolean register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            return true;
+        } catch (JMException ex) {
+            System.out.println("SolverMetrics.register():: unable to register " + name);
+            return false;
+        }
+    }
+
+    public long getSolvedCount() {
+        return this.solved.get();
+    }
+
+    public long getUnsolvableCount() {
+        return this.unsolvable.get();
+    }
+
+    public long getStoppedCount() {
+        return this.stopped.get();
+    }
+
+    public double getMeanMicros() {
+        return this.wallNanos.mean() / 1000;
+    }
+
+    public double getP50Micros() {
+        return this.wallNanos.percentile(0.5) / 1000.0;
+    }
+
+    public double getP99Micros() {
+        return this.wallNanos.percentile(0.99) / 1000.0;
+    }
+
+    public double getP999Micros() {
+        return this.wallNanos.percentile(0.999) / 1000.0;
+    }
+
+    public double getMaxMicros() {
+        return this.wallNanos.max() / 1000.0;
+    }
+
+    public double getMeanNodes() {
+        return this.nodes.mean();
+    }
+
+    public long getP99Nodes() {
+        return this.nodes.percentile(0.99);
+    }
+
+    public long getTotalBacktracks() {
+        return this.backtracks.get();
+    }
+
+    public long getTotalPropagations() {
+        return this.propagations.get();
+    }
+
+    /**
+     * Returns the latency histogram of the solves.
+     * @return the wall-clock times in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return this.wallNanos;
+    }
+
+    public synchronized String[] getSlowestPuzzles() {
+        int n = 0;
+        while (n < SLOWEST && this.slowPuzzles[n] != null) {
+            n++;
+        }
+        String[] slowest = new String[n];
+        for (int i = 0; i < n; i++) {
+            slowest[i] = String.format("%.1fus %s", this.slowNanos[i] / 1000.0, this.slowPuzzles[i]);
+        }
+        return slowest;
+    }
+
+    /**
+     * Returns the metrics as plain text.
+     * @return the metrics as plain text
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("solved: ").append(this.getSolvedCount()).append('\n');
+        out.append("unsolvable: ").append(this.getUnsolvableCount()).append('\n');
+        out.append("timed out or cancelled: ").append(this.getStoppedCount()).append('\n');
+        out.append("latency (us): ").append(this.wallNanos.summary(1000)).append('\n');
+        out.append("nodes: ").append(this.nodes.summary(1)).append('\n');
+        out.append("backtracks: ").append(this.getTotalBacktracks()).append('\n');
+        out.append("propagations: ").append(this.getTotalPropagations()).append('\n');
+        out.append("slowest puzzles:\n");
+        String[] slowest = this.getSlowestPuzzles();
+        for (int i = 0; i < slowest.length; i++) {
+            out.append("  ").append(slowest[i]).append('\n');
+        }
+        return out.toString();
+    }
+}
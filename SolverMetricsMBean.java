@@ -0,0 +1,49 @@
+/**
+ * The JMX view of a SolverMetrics. Times are in microseconds.
+ */
+public interface SolverMetricsMBean {
+    /** @return the number of puzzles solved */
+    long getSolvedCount();
+
+    /** @return the number of puzzles with no solution */
+    long getUnsolvableCount();
+
+    /** @return the number of solves that timed out or were cancelled */
+    long getStoppedCount();
+
+    /** @return the mean solve time */
+    double getMeanMicros();
+
+    /** @return the median solve time */
+    double getP50Micros();
+
+    /** @return the 99th percentile solve time */
+    double getP99Micros();
+
+    /** @return the 99.9th percentile solve time */
+    double getP999Micros();
+
+    /** @return the slowest solve time */
+    double getMaxMicros();
+
+    /** @return the mean number of search nodes per solve */
+    double getMeanNodes();
+
+    /** @return the 99th percentile number of search nodes */
+    long getP99Nodes();
+
+    /** @return the number of backtracks over all solves */
+    long getTotalBacktracks();
+
+    /** @return the number of propagated cells over all solves */
+    long getTotalPropagations();
+
+    /** @return the slowest puzzles with their solve times, slowest first */
+    String[] getSlowestPuzzles();
+
+    /** @return the metrics as plain text */
+    String dump();
+
+    /** Clears the metrics. */
+    void reset();
+}
@@ -0,0 +1,376 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small HTTP front end for a SolverService, bound to localhost only.
+ *
+ * POST /solve takes one or more puzzles, either as 81-character lines or as
+ * JSON (a string, an array of strings, or {"puzzles": [...]}), and streams
+ * back one answer per puzzle in the same order and format: the solution,
+ * "unsolvable", "invalid", or "error" if the puzzle could not be solved
+ * because the server was overloaded or shutting down. Puzzles from
+ * concurrent requests are collected into batches of up to batchSize
+ * (waiting at most batchMillis for a batch to fill) before they are handed
+ * to the workers, so many small requests cost one pool hand-off per batch.
+ * GET /metrics reports throughput and latency.
+ */
+public class SolverServer implements AutoCloseable {
+    private static final int MAX_BODY = 16 << 20; // bytes
+
+    /**
+     * A puzzle waiting to be batched, and the future its request waits on.
+     */
+    private static class Job {
+        private Board board;
+        private CompletableFuture<SolveResult> result = new CompletableFuture<SolveResult>();
+
+        /**
+         * Constructor for Job
+         * @param board the board to be solved
+         */
+        private Job(Board board) {
+            this.board = board;
+        }
+    }
+
+    // Fields for the server and the batching
+    private HttpServer server;
+    private ExecutorService handlers;
+    private SolverService service;
+    private LinkedBlockingQueue<Job> pending;
+    private Thread batcher;
+    private int batchSize;
+    private long batchNanos;
+    private volatile boolean closed;
+    // Fields for the metrics
+    private long startTime;
+    private AtomicLong requests;
+    private AtomicLong puzzles;
+    private AtomicLong batches;
+    private LatencyHistogram requestNanos;
+
+    /**
+     * Constructor for SolverServer
+     * Starts a server on a localhost port.
+     * @param port the port to listen on, or 0 for any free port
+     * @param threads the number of solver threads
+     * @param batchSize the most puzzles handed to the workers at once
+     * @param batchMillis how long to wait for a batch to fill
+     * @throws IOException if the port cannot be bound
+     */
+    public SolverServer(int port, int threads, int batchSize, long batchMillis) throws IOException {
+        this.service = new SolverService(threads, 4 * threads * batchSize, SolverService.Overflow.BLOCK);
+        this.pending = new LinkedBlockingQueue<Job>(this.service.getCapacity());
+        this.batchSize = batchSize;
+        this.batchNanos = TimeUnit.MILLISECONDS.toNanos(batchMillis);
+        this.startTime = System.nanoTime();
+        this.requests = new AtomicLong();
+        this.puzzles = new AtomicLong();
+        this.batches = new AtomicLong();
+        this.requestNanos = new LatencyHistogram();
+
+        this.batcher = new Thread(this::batch, "SolverServer-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.handlers = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.handlers);
+        this.server.createContext("/solve", this::handleSolve);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * @return the port
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Takes puzzles off the pending queue in batches and submits each batch
+     * to the workers, until the thread is interrupted.
+     */
+    private void batch() {
+        List<Job> jobs = new ArrayList<Job>();
+        List<Board> boards = new ArrayList<Board>();
+        try {
+            while (true) {
+                jobs.add(this.pending.take());
+                long deadline = System.nanoTime() + this.batchNanos;
+                while (jobs.size() < this.batchSize) {
+                    Job job = this.pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (job == null) {
+                        break;
+                    }
+                    jobs.add(job);
+                }
+
+                for (int i = 0; i < jobs.size(); i++) {
+                    boards.add(jobs.get(i).board);
+                }
+                List<CompletableFuture<SolveResult>> results = this.service.submitAll(boards);
+                for (int i = 0; i < jobs.size(); i++) {
+                    CompletableFuture<SolveResult> target = jobs.get(i).result;
+                    results.get(i).whenComplete((result, failure) -> {
+                        if (failure != null) {
+                            target.completeExceptionally(failure);
+                        } else {
+                            target.complete(result);
+                        }
+                    });
+                }
+                this.batches.incrementAndGet();
+                jobs.clear();
+                boards.clear();
+            }
+        } catch (InterruptedException ex) {
+            for (int i = 0; i < jobs.size(); i++) {
+                jobs.get(i).result.completeExceptionally(ex);
+            }
+            this.failPending(ex);
+        }
+    }
+
+    /**
+     * Fails every job still waiting to be batched, so no request waits on
+     * a puzzle that will never be solved.
+     * @param failure why the jobs failed
+     */
+    private void failPending(Throwable failure) {
+        Job job;
+        while ((job = this.pending.poll()) != null) {
+            job.result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Answers POST /solve, writing each answer as soon as it and every
+     * answer before it are ready.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        long requestStart = System.nanoTime();
+        if (!exchange.getRequestMethod().equals("POST")) {
+            this.sendText(exchange, 405, "use POST\n");
+            return;
+        }
+        String body = this.readBody(exchange.getRequestBody());
+        if (body == null) {
+            this.sendText(exchange, 413, "request too large\n");
+            return;
+        }
+        boolean json = isJson(body);
+        List<String> lines = json ? jsonStrings(body) : textLines(body);
+        this.requests.incrementAndGet();
+        this.puzzles.addAndGet(lines.size());
+
+        // queue every valid puzzle before writing anything, so they can be batched together
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 0; i < lines.size(); i++) {
+            Board board = new Board();
+            Job job = board.readLine(lines.get(i)) ? new Job(board) : null;
+            if (job != null) {
+                try {
+                    this.pending.put(job);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    this.sendText(exchange, 503, "server is shutting down\n");
+                    return;
+                }
+            }
+            jobs.add(job);
+        }
+        if (this.closed) {
+            // close() may have drained the queue before these jobs were added
+            this.failPending(new IllegalStateException("SolverServer:: server is closed"));
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", json ? "application/json" : "text/plain");
+        exchange.sendResponseHeaders(200, 0); // chunked, so answers stream out as they are ready
+        try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            if (json) {
+                out.write('[');
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
+                if (job != null && !job.result.isDone()) {
+                    out.flush();
+                }
+                String answer = this.answer(job);
+                if (json) {
+                    out.write(i == 0 ? "\n\"" : ",\n\"");
+                    out.write(answer);
+                    out.write('"');
+                } else {
+                    out.write(answer);
+                    out.write('\n');
+                }
+            }
+            if (json) {
+                out.write("\n]\n");
+            }
+        }
+        this.requestNanos.record(System.nanoTime() - requestStart);
+    }
+
+    /**
+     * Waits for a puzzle's solve and returns its answer line.
+     * @param job the queued puzzle, or null if it could not be read
+     * @return the solution, "unsolvable", "invalid", or "error" if the
+     *         solve failed or was rejected
+     */
+    private String answer(Job job) {
+        if (job == null) {
+            return "invalid";
+        }
+        try {
+            SolveResult result = job.result.join();
+            return result.isSolved() ? result.getBoard().toLine() : "unsolvable";
+        } catch (CompletionException ex) {
+            return "error";
+        }
+    }
+
+    /**
+     * Answers GET /metrics with the request and solve metrics as plain text.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        double seconds = (System.nanoTime() - this.startTime) / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append("requests: ").append(this.requests.get()).append('\n');
+        out.append("puzzles: ").append(this.puzzles.get()).append('\n');
+        out.append("batches: ").append(this.batches.get()).append('\n');
+        out.append("puzzles/sec since start: ").append(String.format("%.1f", this.puzzles.get() / seconds)).append('\n');
+        out.append("request latency (us): ").append(this.requestNanos.summary(1000)).append('\n');
+        out.append(this.service.getMetrics().dump());
+        this.sendText(exchange, 200, out.toString());
+    }
+
+    /**
+     * Sends a whole plain text response.
+     * @param exchange the request and response
+     * @param status the HTTP status code
+     * @param text the response body
+     * @throws IOException if the response cannot be written
+     */
+    private void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    /**
+     * Reads a request body.
+     * @param in the request body
+     * @return the body, or null if it is larger than MAX_BODY
+     * @throws IOException if the body cannot be read
+     */
+    private String readBody(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(MAX_BODY + 1);
+        if (bytes.length > MAX_BODY) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns if a request body is JSON rather than plain lines.
+     * @param body the request body
+     * @return true if the body starts with [, {, or "
+     */
+    private static boolean isJson(String body) {
+        for (int i = 0; i < body.length(); i++) {
+            char ch = body.charAt(i);
+            if (!Character.isWhitespace(ch)) {
+                return ch == '[' || ch == '{' || ch == '"';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the non-empty lines of a plain text body.
+     * @param body the request body
+     * @return the puzzle lines
+     */
+    private static List<String> textLines(String body) {
+        List<String> lines = new ArrayList<String>();
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the string values of a JSON body, skipping object keys.
+     * Puzzles never need escapes, so escaped characters are kept as they are.
+     * @param body the request body
+     * @return the puzzle strings
+     */
+    private static List<String> jsonStrings(String body) {
+        List<String> strings = new ArrayList<String>();
+        int i = 0;
+        while ((i = body.indexOf('"', i)) >= 0) {
+            int end = i + 1;
+            while (end < body.length() && body.charAt(end) != '"') {
+                end += body.charAt(end) == '\\' ? 2 : 1;
+            }
+            String value = body.substring(i + 1, Math.min(end, body.length()));
+            int next = end + 1;
+            while (next < body.length() && Character.isWhitespace(body.charAt(next))) {
+                next++;
+            }
+            if (next >= body.length() || body.charAt(next) != ':') {
+                strings.add(value);
+            }
+            i = end + 1;
+        }
+        return strings;
+    }
+
+    /**
+     * Stops the server, the batcher, and the workers.
+     */
+    public void close() {
+        this.closed = true;
+        this.server.stop(0);
+        this.batcher.interrupt();
+        this.failPending(new IllegalStateException("SolverServer:: server is closed"));
+        this.service.close();
+        this.handlers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SolverServer server = new SolverServer(port, threads, 32, 2);
+        System.out.println("Solving on http://localhost:" + server.getPort() + "/solve with " + threads + " threads");
+    }
+}
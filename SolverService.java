@@ -0,0 +1,272 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Solves boards asynchronously on a fixed pool of worker threads. Each
+ * submission takes one of a fixed number of slots (the workers plus a
+ * bounded queue) until its solve finishes, so memory stays bounded under
+ * bursts. When every slot is taken, a submission is either rejected at once
+ * or blocks until one frees up, depending on the Overflow policy. Each
+ * worker thread keeps its own solver.
+ */
+public class SolverService implements AutoCloseable {
+    /**
+     * What submit() does when the queue is full.
+     */
+    public enum Overflow {
+        REJECT, // fail the future with a RejectedExecutionException
+        BLOCK // wait for a free slot
+    }
+
+    // Fields for the pool and its bound
+    private ThreadPoolExecutor pool;
+    private Semaphore slots;
+    private int capacity; // the number of slots
+    private Overflow overflow;
+    private ThreadLocal<SudokuSolver> solvers;
+    private SolverMetrics metrics;
+    private AtomicLong rejected;
+
+    /**
+     * Constructor for SolverService
+     * Initializes a service with one BacktrackSolver per platform thread.
+     * @param threads the number of worker threads
+     * @param queueSize the most submissions waiting for a worker
+     * @param overflow what to do when the queue is full
+     */
+    public SolverService(int threads, int queueSize, Overflow overflow) {
+        this(threads, queueSize, overflow, BacktrackSolver::new, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Constructor for SolverService
+     * @param threads the number of worker threads
+     * @param queueSize the most submissions waiting for a worker
+     * @param overflow what to do when the queue is full
+     * @param engine creates the solver each worker thread uses
+     * @param threadFactory makes the worker threads
+     */
+    public SolverService(int threads, int queueSize, Overflow overflow, Supplier<SudokuSolver> engine,
+            ThreadFactory threadFactory) {
+        // the queue can never fill up, since only threads + queueSize tasks hold a slot at once
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize + threads), threadFactory);
+        this.capacity = threads + queueSize;
+        this.slots = new Semaphore(this.capacity);
+        this.overflow = overflow;
+        this.solvers = ThreadLocal.withInitial(engine);
+        this.metrics = new SolverMetrics();
+        this.rejected = new AtomicLong();
+    }
+
+    /**
+     * Queues a board to be solved in place. The board must not be used
+     * until the future completes. If the queue is full the future fails
+     * with a RejectedExecutionException (REJECT), or this call waits for
+     * room (BLOCK); if that wait is interrupted the future fails with the
+     * InterruptedException and the interrupt stays set.
+     * @param board the board to be solved
+     * @return the result of the solve, once it is done
+     */
+    public CompletableFuture<SolveResult> submit(Board board) {
+        if (this.overflow == Overflow.REJECT) {
+            if (!this.slots.tryAcquire()) {
+                return this.reject("SolverService.submit():: queue is full");
+            }
+        } else {
+            try {
+                this.slots.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+
+        CompletableFuture<SolveResult> result = new CompletableFuture<SolveResult>();
+        try {
+            this.pool.execute(() -> this.solve(board, result));
+        } catch (RejectedExecutionException ex) {
+            // the service was shut down
+            this.slots.release();
+            this.rejected.incrementAndGet();
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Queues several boards to be solved in place as one task, so small
+     * requests can share the cost of a hand-off to the pool. Each board
+     * takes a slot, so the overflow policy applies to the batch as a whole:
+     * REJECT fails every future if there is not room for all of them.
+     * @param boards the boards to be solved
+     * @return the result of each solve, in the same order
+     * @throws IllegalArgumentException if there are more boards than slots
+     */
+    public List<CompletableFuture<SolveResult>> submitAll(List<Board> boards) {
+        if (boards.size() > this.capacity) {
+            throw new IllegalArgumentException("SolverService.submitAll():: " + boards.size()
+                    + " boards is more than the " + this.capacity + " slots");
+        }
+        List<CompletableFuture<SolveResult>> results = new ArrayList<CompletableFuture<SolveResult>>();
+        Throwable failure = null;
+        if (this.overflow == Overflow.REJECT) {
+            if (!this.slots.tryAcquire(boards.size())) {
+                failure = new RejectedExecutionException("SolverService.submitAll():: queue is full");
+                this.rejected.addAndGet(boards.size());
+            }
+        } else {
+            try {
+                this.slots.acquire(boards.size());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failure = ex;
+            }
+        }
+        for (int i = 0; i < boards.size(); i++) {
+            results.add(failure == null ? new CompletableFuture<SolveResult>()
+                    : CompletableFuture.failedFuture(failure));
+        }
+        if (failure != null) {
+            return results;
+        }
+
+        Board[] batch = boards.toArray(new Board[0]); // the caller may reuse its list
+        try {
+            this.pool.execute(() -> {
+                for (int i = 0; i < batch.length; i++) {
+                    this.solve(batch[i], results.get(i));
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the service was shut down
+            this.slots.release(boards.size());
+            this.rejected.addAndGet(boards.size());
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).completeExceptionally(ex);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Solves a board on a worker thread and completes its future. A future
+     * cancelled while it was queued is skipped.
+     * @param board the board to be solved
+     * @param result the future to complete
+     */
+    private void solve(Board board, CompletableFuture<SolveResult> result) {
+        try {
+            if (!result.isDone()) {
+                Board puzzle = board.copy();
+                SolveResult solved = this.solvers.get().solve(board);
+                this.metrics.record(solved, puzzle);
+                result.complete(solved);
+            }
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+        } finally {
+            this.slots.release();
+        }
+    }
+
+    /**
+     * Counts a rejected submission and returns its failed future.
+     * @param message why it was rejected
+     * @return a future failed with a RejectedExecutionException
+     */
+    private CompletableFuture<SolveResult> reject(String message) {
+        this.rejected.incrementAndGet();
+        return CompletableFuture.failedFuture(new RejectedExecutionException(message));
+    }
+
+    /**
+     * Returns the most boards that can be submitted or solving at once.
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of submissions waiting for a worker.
+     * @return the queue length
+     */
+    public int getQueued() {
+        return this.pool.getQueue().size();
+    }
+
+    /**
+     * Returns the number of submissions turned away because the queue was
+     * full or the service was shut down.
+     * @return the number of rejected submissions
+     */
+    public long getRejectedCount() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Returns the stats of every solve the service has finished.
+     * @return the solve metrics
+     */
+    public SolverMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Stops taking submissions, lets the queued ones finish, and waits for
+     * the workers to exit.
+     */
+    public void close() {
+        this.pool.shutdown();
+        try {
+            while (!this.pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting for the queued solves
+            }
+        } catch (InterruptedException ex) {
+            this.pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java SolverService <puzzles> [threads] [queueSize] [--reject]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Overflow overflow = args.length > 3 && args[3].equals("--reject") ? Overflow.REJECT : Overflow.BLOCK;
+
+        List<CompletableFuture<SolveResult>> results = new ArrayList<CompletableFuture<SolveResult>>();
+        long startTime = System.nanoTime();
+        try (SolverService service = new SolverService(threads, queueSize, overflow);
+                BufferedReader in = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Board board = new Board();
+                if (board.readLine(line)) {
+                    results.add(service.submit(board));
+                }
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).exceptionally(ex -> null).join();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.println("Submitted " + results.size() + " puzzles, rejected " + service.getRejectedCount()
+                    + ", on " + threads + " threads in " + String.format("%.2f", seconds) + " s");
+            System.out.print(service.getMetrics().dump());
+        }
+    }
+}
@@ -39,98 +39,139 @@ public class Sudoku {
     }
 
     /**
-     * Solves a given unsolved Sudoku board. Uses a CellStack to backtrack steps
-     * if there is no valid value.
+     * Constructor for Sudoku
+     * Initializes the Sudoku game with an existing board, optionally
+     * without opening a display window (e.g. on headless machines).
+     * @param board the Sudoku board to be solved
+     * @param showDisplay whether to open a display for the board
+     */
+    public Sudoku(Board board, boolean showDisplay) {
+        this.sudokuBoard = board;
+        this.ld = showDisplay ? new LandscapeDisplay(sudokuBoard) : null;
+        this.numLocked = sudokuBoard.numLocked();
+    }
+
+    /**
+     * Solves a given unsolved Sudoku board with a BacktrackSolver, following
+     * the search on the display.
      * @return true if solved, false otherwise
-     * @param delay the amount of delay between each repaint of board
+     * @param delay the delay in ms after each guess, 0 to solve at full speed
      * @throws InterruptedException in case the program is interrupted
      */
     public boolean solve(int delay) throws InterruptedException {
-        CellStack backtrack = new CellStack();
-        int totalUnspecified = 81 - sudokuBoard.numLocked();
-
-        while(backtrack.size() < totalUnspecified) {
-            if(ld != null) ld.repaint();
-            if(delay > 0) Thread.sleep(delay);
-
-            Cell selectedCell = findNextCell();
-            // get a valid value for the selected cell
-            if(selectedCell != null) {
-                for (int i = 1; i < 10; i++) {
-                    if(this.sudokuBoard.validValue(selectedCell.getRow(), selectedCell.getCol(), i)){
-                        selectedCell.setValue(i);
-                        break;
+        SolveResult result = this.solve(delay, new SolveBudget(0, 0, null));
+        if(result.getStatus() == SolveResult.Status.CANCELLED && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return result.isSolved();
+    }
+
+    /**
+     * Solves the board with a BacktrackSolver within a budget, pausing
+     * delay ms after each guess. The display follows the search at 30
+     * frames per second from its own copy of the board, so drawing never
+     * slows the search or reads the board while it changes. The solve
+     * stops with TIMED_OUT when the deadline or node limit is reached, and
+     * with CANCELLED when the budget's token is cancelled or this thread is
+     * interrupted (the interrupt stays set). A solve that stops early
+     * leaves the board with only its original values, and not marked
+     * finished, so no banner is shown.
+     * @param delay the delay in ms between steps
+     * @param budget the limits on the solve
+     * @return the result of the solve
+     */
+    public SolveResult solve(int delay, SolveBudget budget) {
+        BacktrackSolver solver = new BacktrackSolver();
+        SolverListener display = ld != null ? new CoalescingDisplayListener(ld, 30) : null;
+        if(delay > 0) {
+            solver.setListener(new SolverListener() {
+                public void onStart(Board board) {
+                    if(display != null) display.onStart(board);
+                }
+
+                public void onAssign(int row, int col, int value) {
+                    if(display != null) display.onAssign(row, col, value);
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
                     }
                 }
-            }
-            // push the cell onto stack and update board
-            if(selectedCell != null) {
-                if(this.sudokuBoard.validValue(selectedCell.getRow(), selectedCell.getCol(), selectedCell.getValue())) {
-                    backtrack.push(selectedCell);
-                    this.sudokuBoard.set(selectedCell.getRow(), selectedCell.getCol(), selectedCell.getValue(), true); 
+
+                public void onPropagate(int row, int col, int value) {
+                    if(display != null) display.onPropagate(row, col, value);
                 }
-            }
-            // start backtracking if selected cell has no valid values
-            else {
-                while(backtrack.size() > 0) {
-                    Cell backtrackCell = backtrack.pop();
-                    boolean newValSet = false; // to check if another valid val is set
-                    // search for a new valid value of selected cell (starting at its previous value)
-                    for (int i = 1; backtrackCell.getValue() + i < 10; i++) {
-                        if(this.sudokuBoard.validValue(backtrackCell.getRow(), backtrackCell.getCol(), backtrackCell.getValue()+i)) {
-                            backtrackCell.setValue(backtrackCell.getValue()+i);
-                            newValSet = true;
-                            break;
-                        }
-                    }
-                    // push the cell onto the stack again and update board with new value
-                    if(newValSet == true) {
-                        backtrack.push(backtrackCell);
-                        this.sudokuBoard.set(backtrackCell.getRow(), backtrackCell.getCol(), backtrackCell.getValue(), true);
-                        break;
-                    }
-                    // no valid values for selected cell, so set it to 0 on board
-                    else {
-                        this.sudokuBoard.set(backtrackCell.getRow(), backtrackCell.getCol(), 0, false);
-                    }
+
+                public void onUndo(int row, int col, int value) {
+                    if(display != null) display.onUndo(row, col, value);
                 }
-                // there is no solution for the board
-                if(backtrack.size() == 0) {
-                    this.sudokuBoard.setFinished(true);
-                    ld.repaint();
-                    return false;
+
+                public void onFinish(Board board) {
+                    if(display != null) display.onFinish(board);
                 }
-            }
+            });
+        } else {
+            solver.setListener(display);
+        }
+        SolveResult result = solver.solve(this.sudokuBoard, budget);
+
+        this.markFinished(this.sudokuBoard, result);
+        if(ld != null) ld.repaint(); // show the finished banner
+        return result;
+    }
+
+    /**
+     * Solves the board at full speed with a BacktrackSolver, recording the
+     * search so it can be replayed on the display with play() instead of
+     * being solved again slowly. The search runs on a copy, so the board the
+     * display is painting is never changed while it is drawn; the copy
+     * becomes the game's board once the search is done.
+     * @return the trace of the search
+     */
+    public SolveTrace record() {
+        BacktrackSolver solver = new BacktrackSolver();
+        TraceRecorder recorder = new TraceRecorder();
+        solver.setListener(recorder);
+        Board board = this.sudokuBoard.copy();
+        SolveResult result = solver.solve(board);
+        this.markFinished(board, result);
+        this.sudokuBoard = board;
+        return recorder.getTrace();
+    }
+
+    /**
+     * Solves the Sudoku board with the given engine, e.g. a
+     * DancingLinksSolver for hard boards, and shows the result.
+     * @param solver the engine to solve the board with
+     * @return true if solved, false otherwise
+     */
+    public boolean solve(SudokuSolver solver) {
+        SolveResult result = solver.solve(this.sudokuBoard);
+        this.markFinished(this.sudokuBoard, result);
+        if(ld != null) ld.repaint();
+        return result.isSolved();
+    }
+
+    /**
+     * Marks a board finished if its solve found a solution or proved there
+     * is none. A solve stopped by its budget (TIMED_OUT or CANCELLED) says
+     * nothing about the board, so no banner is shown for it.
+     * @param board the board that was solved
+     * @param result the result of the solve
+     */
+    private void markFinished(Board board, SolveResult result) {
+        SolveResult.Status status = result.getStatus();
+        if(status == SolveResult.Status.SOLVED || status == SolveResult.Status.UNSOLVABLE) {
+            board.setFinished(true);
         }
-        // we have a solution for the board
-        this.sudokuBoard.setFinished(true);
-        ld.repaint(); // the loop finishes before we can paint the last cell, so paint again
-        return true;
     }
 
+    /**
+     * Returns the empty cell with the fewest valid values.
+     * @return the empty cell with the fewest valid values, or null if none
+     */
     public Cell findNextCell() {
-        int fewestValidVal = 10; // since we need to find the min valid val
-        int validValueCount;
-        Cell lowestValidValCell = null; // remains null if no cells with 0 have valid value
-
-        for (int i = 0; i < this.sudokuBoard.getRows(); i++) {
-            for (int j = 0; j < this.sudokuBoard.getCols(); j++) {
-                if(this.sudokuBoard.value(i, j) == 0) {
-                    validValueCount = 0;
-                    for (int k = 1; k < 10; k++) {
-                        if(this.sudokuBoard.validValue(i, j, k)) {
-                            validValueCount++;
-                        }
-                    }
-                    // if there is a new lowest valid val count, update the cell to return
-                    if(validValueCount < fewestValidVal && validValueCount != 0) {
-                        fewestValidVal = validValueCount;
-                        lowestValidValCell = this.sudokuBoard.get(i, j);
-                    }
-                }
-            }
-        }
-        return lowestValidValCell;
+        return BacktrackSolver.findNextCell(this.sudokuBoard);
     }
 
     /**
@@ -154,7 +195,7 @@ public class Sudoku {
      */
     public void resetGame() {
         sudokuBoard = new Board(numLocked);
-        this.ld.setBoard(sudokuBoard);
+        if(ld != null) this.ld.setBoard(sudokuBoard);
         this.sudokuBoard.setFinished(false);
     }
 
@@ -164,7 +205,7 @@ public class Sudoku {
      */
     public void resetGame(Board board) {
         this.sudokuBoard = board;
-        this.ld.setBoard(sudokuBoard);
+        if(ld != null) this.ld.setBoard(sudokuBoard);
         this.sudokuBoard.setFinished(false);
     }
 
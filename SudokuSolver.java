@@ -0,0 +1,14 @@
+/**
+ * A Sudoku solving engine. Implementations work only on the Board state and
+ * never create any display classes, so they can run on headless machines.
+ */
+public interface SudokuSolver {
+    /**
+     * Solves the board in place. If there is no solution, the board is left
+     * with only its original values.
+     * 
+     * @param board the board to be solved
+     * @return the result of the solve
+     */
+    SolveResult solve(Board board);
+}
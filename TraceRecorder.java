@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Records a search as a SolveTrace. Attach it to a solver with
+ * setListener(), solve, then call getTrace(). Each step is encoded as it
+ * happens, so recording costs a few array writes per step and the solver
+ * runs at full speed. The recorder can be reused; each solve starts a new
+ * trace.
+ */
+public class TraceRecorder implements SolverListener {
+    // Fields for the trace being recorded
+    private Board start;
+    private byte[] steps;
+    private int length;
+    private int count;
+    private int cell; // cell of the previous step
+    private int size; // cells per row
+    private boolean solved;
+
+    /**
+     * Constructor for TraceRecorder
+     */
+    public TraceRecorder() {
+        this.steps = new byte[4096];
+    }
+
+    public void onStart(Board board) {
+        this.start = board.copy();
+        this.size = board.getCols();
+        this.length = 0;
+        this.count = 0;
+        this.cell = 0;
+        this.solved = false;
+    }
+
+    public void onAssign(int row, int col, int value) {
+        this.record(row, col, value, SolveTrace.ASSIGN);
+    }
+
+    public void onPropagate(int row, int col, int value) {
+        this.record(row, col, value, SolveTrace.PROPAGATE);
+    }
+
+    public void onUndo(int row, int col, int value) {
+        this.record(row, col, value, SolveTrace.UNDO);
+    }
+
+    public void onFinish(Board board) {
+        this.solved = board.validSolution();
+    }
+
+    /**
+     * Appends one step as a varint.
+     * @param row the row of the cell
+     * @param col the col of the cell
+     * @param value the new value of the cell
+     * @param kind ASSIGN, PROPAGATE, or UNDO
+     */
+    private void record(int row, int col, int value, int kind) {
+        int next = row * this.size + col;
+        int packed = SolveTrace.pack(next - this.cell, value, kind, this.size);
+        this.cell = next;
+        if (this.length + 5 > this.steps.length) {
+            this.steps = Arrays.copyOf(this.steps, this.steps.length * 2);
+        }
+        while ((packed & ~0x7F) != 0) {
+            this.steps[this.length++] = (byte) ((packed & 0x7F) | 0x80);
+            packed >>>= 7;
+        }
+        this.steps[this.length++] = (byte) packed;
+        this.count++;
+    }
+
+    /**
+     * Returns the trace of the last search.
+     * @return the trace
+     * @throws IllegalStateException if no search has started
+     */
+    public SolveTrace getTrace() {
+        if (this.start == null) {
+            throw new IllegalStateException("TraceRecorder.getTrace():: nothing has been recorded");
+        }
+        return new SolveTrace(this.start.copy(), Arrays.copyOf(this.steps, this.length), this.length, this.count,
+                this.solved);
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * An undo log for the search, kept in preallocated int arrays so pushing and
+ * popping never allocates. Each entry is a cell index (row * 9 + col) and the
+ * value the cell held before it was set. Frames mark where each guess starts,
+ * so everything deduced after a guess can be undone together.
+ */
+public class Trail {
+    // Fields for the entries and the guess frames
+    private int[] cells;
+    private int[] previous;
+    private int size;
+    private int[] frames;
+    private int depth;
+
+    /**
+     * Constructor for Trail
+     * @param capacity the most entries (and frames) the trail can hold
+     */
+    public Trail(int capacity) {
+        this.cells = new int[capacity];
+        this.previous = new int[capacity];
+        this.frames = new int[capacity];
+        this.clear();
+    }
+
+    /**
+     * Removes every entry and frame.
+     */
+    public void clear() {
+        this.size = 0;
+        this.depth = 0;
+    }
+
+    /**
+     * Records that a cell is about to be set.
+     * @param cell the index of the cell
+     * @param previousValue the value the cell holds now
+     */
+    public void push(int cell, int previousValue) {
+        this.cells[this.size] = cell;
+        this.previous[this.size] = previousValue;
+        this.size++;
+    }
+
+    /**
+     * Removes the newest entry.
+     */
+    public void pop() {
+        this.size--;
+    }
+
+    /**
+     * Returns the cell index of the newest entry.
+     * @return the cell index of the newest entry
+     */
+    public int topCell() {
+        return this.cells[this.size - 1];
+    }
+
+    /**
+     * Returns the previous value of the newest entry.
+     * @return the previous value of the newest entry
+     */
+    public int topPrevious() {
+        return this.previous[this.size - 1];
+    }
+
+    /**
+     * Returns the cell index of an entry.
+     * @param i the position of the entry
+     * @return the cell index of the entry
+     */
+    public int cell(int i) {
+        return this.cells[i];
+    }
+
+    /**
+     * Returns the most entries (and frames) the trail can hold.
+     * @return the capacity of the trail
+     */
+    public int capacity() {
+        return this.cells.length;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return the number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Starts a new frame at the current end of the trail.
+     */
+    public void pushFrame() {
+        this.frames[this.depth++] = this.size;
+    }
+
+    /**
+     * Returns the position where the newest frame starts.
+     * @return the start of the newest frame
+     */
+    public int topFrame() {
+        return this.frames[this.depth - 1];
+    }
+
+    /**
+     * Removes the newest frame (but not its entries).
+     */
+    public void popFrame() {
+        this.depth--;
+    }
+
+    /**
+     * Returns the number of frames.
+     * @return the number of frames
+     */
+    public int depth() {
+        return this.depth;
+    }
+
+    public static void main(String[] args) {
+        Trail trail = new Trail(81);
+        trail.push(40, 0);
+        trail.pushFrame();
+        trail.push(3, 0);
+        trail.push(7, 5);
+        System.out.println("Trail size: " + trail.size() + ", frames: " + trail.depth());
+        System.out.println("Top cell: " + trail.topCell() + ", previous value: " + trail.topPrevious());
+
+        while (trail.size() > trail.topFrame()) {
+            trail.pop();
+        }
+        trail.popFrame();
+        System.out.println("Trail size: " + trail.size() + ", frames: " + trail.depth());
+        System.out.println("Top cell: " + trail.topCell());
+    }
+}
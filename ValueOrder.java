@@ -0,0 +1,120 @@
+import java.util.Random;
+
+/**
+ * Chooses which valid value a BacktrackSolver tries next in a guessed cell.
+ * The solver passes the values not yet tried, so an order only has to pick
+ * one of them; when a guess fails the solver asks again without it.
+ */
+public interface ValueOrder {
+    /**
+     * The standard orders, which keep no state and can be shared.
+     */
+    enum Standard implements ValueOrder {
+        /**
+         * The lowest value first.
+         */
+        ASCENDING {
+            public int pick(Board board, int row, int col, int allowed) {
+                return Integer.numberOfTrailingZeros(allowed);
+            }
+        },
+        /**
+         * The value that the fewest empty peers could also take
+         * (least constraining value), lowest first on ties.
+         */
+        LEAST_CONSTRAINING {
+            public int pick(Board board, int row, int col, int allowed) {
+                int[] peers = board.getGeometry().peers(row * board.getCols() + col);
+                int best = Integer.numberOfTrailingZeros(allowed);
+                int fewest = Integer.MAX_VALUE;
+                for (int rest = allowed; rest != 0; rest &= rest - 1) {
+                    int digit = Integer.numberOfTrailingZeros(rest);
+                    int ruledOut = 0;
+                    for (int p = 0; p < peers.length && ruledOut < fewest; p++) {
+                        int r = peers[p] / board.getCols();
+                        int c = peers[p] % board.getCols();
+                        if (board.value(r, c) == 0 && (board.candidates(r, c) & (1 << digit)) != 0) {
+                            ruledOut++;
+                        }
+                    }
+                    if (ruledOut < fewest) {
+                        fewest = ruledOut;
+                        best = digit;
+                    }
+                }
+                return best;
+            }
+        }
+    }
+
+    /**
+     * A random value, from a source that is seeded again at the start of
+     * every search, so the same board is always searched the same way. It
+     * keeps state, so each solver needs its own.
+     */
+    class Seeded implements ValueOrder {
+        // Fields for the random source
+        private long seed;
+        private Random rand;
+
+        /**
+         * Constructor for Seeded
+         * @param seed the seed used at the start of every search
+         */
+        public Seeded(long seed) {
+            this.seed = seed;
+            this.rand = new Random(seed);
+        }
+
+        public void reset() {
+            this.rand.setSeed(this.seed);
+        }
+
+        public int pick(Board board, int row, int col, int allowed) {
+            for (int skip = this.rand.nextInt(Integer.bitCount(allowed)); skip > 0; skip--) {
+                allowed &= allowed - 1;
+            }
+            return Integer.numberOfTrailingZeros(allowed);
+        }
+
+        public String toString() {
+            return "RANDOM(" + this.seed + ")";
+        }
+    }
+
+    /**
+     * Returns the value to try next.
+     * @param board the board being searched
+     * @param row the row of the guessed cell
+     * @param col the col of the guessed cell
+     * @param allowed the valid values not yet tried, as a bit mask (never 0)
+     * @return one of the allowed values
+     */
+    int pick(Board board, int row, int col, int allowed);
+
+    /**
+     * Called at the start of every search. Does nothing by default.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Returns an order by name: "asc", "lcv", or "random:seed".
+     * @param name the name of the order
+     * @return the order; a new one for "random"
+     * @throws IllegalArgumentException if there is no order by that name
+     */
+    static ValueOrder forName(String name) {
+        String lower = name.toLowerCase();
+        if (lower.equals("asc") || lower.equals("ascending")) {
+            return Standard.ASCENDING;
+        } else if (lower.equals("lcv")) {
+            return Standard.LEAST_CONSTRAINING;
+        } else if (lower.equals("random")) {
+            return new Seeded(1);
+        } else if (lower.startsWith("random:")) {
+            return new Seeded(Long.parseLong(lower.substring(7)));
+        }
+        throw new IllegalArgumentException("ValueOrder.forName():: no order named " + name);
+    }
+}